@@ -1,93 +1,67 @@
 package ottop.sudoku.board;
 
-import ottop.sudoku.puzzle.ISudoku;
-
 import java.util.*;
 
 public abstract class AbstractGroup implements Comparable<AbstractGroup> {
-    static final int EMPTYSYMBOLCODE = 0; // 0 by definition, code for empty cell is 0
     final Map<Coord, Integer> coords; // the cell coordinates in this group, mapped to internal index
+    final Coord[] cells; // internal index to cell coordinates
+    private int[] cellIndexes; // internal index to the cell index of the puzzle
+    private int[] cellPositions; // reverse: cell index of the puzzle to internal index, -1 if not in group
     private final String groupID;
     final int groupSize; // number of cells in a group, identical to number of distinct symbols - 1
 
-    // Below depends on state of puzzle - which cells are occupied
-
-    private boolean[] hasSymbolCode; // map that tells which symbols are currently contained
-    private int[] groupSymbolCodes; // current cell state
-    private int groupOccupiedSize; // nr of occupied cells in group
-
-    /*
-    For a standard SudokuMain:
-
-    Group has cells with internal index 0..8, mapped to (current) symbol codes via "groupSymbolCodes"
-    "coords" indicates where a coord is in this group: a map of Coord --> internal index
-    "hasSymbolCodes" indicates which symbol codes are currently in this group
-
-    So
-
-    Puzzle.symbolCodeToSymbol( groupSymbolCodes[coords[CELL]] ) gives the symbol at Coord CELL
-
-    and
-
-    groupSymbolCodes[i] = myPuzzle.getSymbolCodeAtCoordinates(
-       new Coord(startX+internalIndexToRelativeX(i),
-                 startY+internalIndexToRelativeY(i)));
-
-     */
-
+    // Groups only describe the layout of the board. What is on the board is kept by
+    // the puzzle itself, so groups are shared by all puzzles with the same topology.
 
     public AbstractGroup(Coord[] cells, String id) {
         this.groupID = id;
         this.groupSize = cells.length;
 //        this.startX = minX(cells);
 //        this.startY = minY(cells);
+        this.cells = cells.clone();
         coords = new HashMap<>();
         for (int i=0; i<cells.length; i++) {
             coords.put(cells[i], i);
         }
     }
 
-    public void resetGroup(ISudoku myPuzzle) {
-        this.hasSymbolCode = new boolean[myPuzzle.getSymbolCodeRange()];
-        this.groupSymbolCodes = new int[this.groupSize];
-
-        this.groupOccupiedSize = 0;
-        for (Map.Entry<Coord, Integer> c: coords.entrySet()) {
-            groupSymbolCodes[c.getValue()] = myPuzzle.getSymbolCodeAtCoordinates(c.getKey());
-            if (groupSymbolCodes[c.getValue()] != EMPTYSYMBOLCODE) {
-                hasSymbolCode[groupSymbolCodes[c.getValue()]] = true;
-                groupOccupiedSize++;
-            }
+    // Binds the cells to the (dense) cell indexes of the topology this group is part of
+    void indexCells(PuzzleTopology topology) {
+        int[] indexes = new int[groupSize];
+        int[] positions = new int[topology.getCellCount()];
+        Arrays.fill(positions, -1);
+        for (int i=0; i<groupSize; i++) {
+            indexes[i] = topology.getCellIndex(cells[i]);
+            positions[indexes[i]] = i;
         }
+        this.cellIndexes = indexes;
+        this.cellPositions = positions;
     }
 
-
     public boolean isInGroup(Coord c) {
         return coords.containsKey(c);
     }
 
-    public int getGroupSize() { return groupSize; }
-
-    public int getGroupOccupiedSize() { return groupOccupiedSize; }
+    public boolean isInGroup(int cellIndex) {
+        return cellPositions[cellIndex] >= 0;
+    }
 
-    private boolean isOccupied(Coord c) {
-        Integer val = coords.get(c);
-        if (val == null) return false;
-        return groupSymbolCodes[val] != EMPTYSYMBOLCODE;
+    // Internal index of a cell of the puzzle in this group, -1 if not in the group
+    public int getPosition(int cellIndex) {
+        return cellPositions[cellIndex];
     }
 
-    public boolean isPossibility(int symbolCode, Coord c) {
-        if (isInGroup(c)) {
-            if (hasSymbolCode[symbolCode]) return false;
-            return !isOccupied(c);
-        }
-        return true;
+    // Cell indexes of the puzzle, in internal index order. Do not modify.
+    public int[] getCellIndexes() {
+        return cellIndexes;
     }
 
-    public boolean isComplete() {
-        return groupSize == groupOccupiedSize;
+    public Coord getCell(int position) {
+        return cells[position];
     }
 
+    public int getGroupSize() { return groupSize; }
+
     public Set<Coord> getCoords() {
         return coords.keySet();
     }
@@ -98,21 +72,6 @@ public abstract class AbstractGroup implements Comparable<AbstractGroup> {
         return groupID;
     }
 
-    public boolean isInconsistent() {
-        boolean isInconsistent = false;
-        int[] symbolCodeCount = new int[1 + groupSize];
-        for (int i = 0; i < groupSize; i++) {
-            symbolCodeCount[groupSymbolCodes[i]] += 1;
-        }
-        for (int j = 1; j <= groupSize; j++) {
-            if (symbolCodeCount[j] > 1) {
-                isInconsistent = true;
-                break;
-            }
-        }
-        return isInconsistent;
-    }
-
     @Override
     public int compareTo(AbstractGroup g) {
         return groupID.compareTo(g.groupID);
@@ -19,6 +19,6 @@ public class ColumnGroup extends RectangularGroup {
 //    }
 
     public int getColumn() {
-        return coords.keySet().iterator().next().getX();
+        return cells[0].getX();
     }
 }
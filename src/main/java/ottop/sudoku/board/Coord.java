@@ -7,12 +7,24 @@ public class Coord implements Comparable<Coord> {
 
     // internal representation
     private final int coord;
-    private final int MULTIPLIER = 1000;
+    private static final int MULTIPLIER = 1000;
+
+    private static final Pattern COORD_PATTERN = Pattern.compile("^r(\\d+)c(\\d+)$", Pattern.CASE_INSENSITIVE);
+
+    // Coords are immutable so the ones for any realistic board size are shared
+    private static final int CACHED_SIZE = 32;
+    private static final Coord[] cache = new Coord[CACHED_SIZE * CACHED_SIZE];
+    static {
+        for (int x = 0; x < CACHED_SIZE; x++) {
+            for (int y = 0; y < CACHED_SIZE; y++) {
+                cache[x * CACHED_SIZE + y] = new Coord(x, y);
+            }
+        }
+    }
 
     // must be of form r4c8
     public Coord(String s) {
-        Pattern pattern = Pattern.compile("^r(\\d+)c(\\d+)$", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(s);
+        Matcher matcher = COORD_PATTERN.matcher(s);
         boolean matchFound = matcher.find();
         if (matchFound) {
             int y = Integer.parseInt(matcher.group(1)) - 1;
@@ -29,6 +41,19 @@ public class Coord implements Comparable<Coord> {
         coord = getKey(x, y);
     }
 
+    // Shared instance, preferred over the constructors
+    public static Coord of(int x, int y) {
+        if (x >= 0 && y >= 0 && x < CACHED_SIZE && y < CACHED_SIZE) {
+            return cache[x * CACHED_SIZE + y];
+        }
+        return new Coord(x, y);
+    }
+
+    public static Coord of(String s) {
+        Coord c = new Coord(s);
+        return of(c.getX(), c.getY());
+    }
+
     @Override
     public int hashCode() {
         return coord;
@@ -36,6 +61,7 @@ public class Coord implements Comparable<Coord> {
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) return true;
         if (obj == null) return false;
         if (obj instanceof Coord) {
             return ((Coord) obj).coord == coord;
@@ -45,7 +71,7 @@ public class Coord implements Comparable<Coord> {
 
     public static Coord[] toCoords(String[] cells) {
         Coord[] result = new Coord[cells.length];
-        for (int i=0; i< cells.length; i++) result[i] = new Coord(cells[i]);
+        for (int i=0; i< cells.length; i++) result[i] = of(cells[i]);
         return result;
     }
 
@@ -60,15 +86,15 @@ public class Coord implements Comparable<Coord> {
         return coord - o.coord;
     }
 
-    private int getKey(int x, int y) {
+    private static int getKey(int x, int y) {
         return x + y * MULTIPLIER;
     }
 
-    public Integer getY() {
+    public int getY() {
         return coord / MULTIPLIER;
     }
 
-    public Integer getX() {
+    public int getX() {
         return coord % MULTIPLIER;
     }
 }
@@ -0,0 +1,92 @@
+package ottop.sudoku.board;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The cells two groups have in common. Part of the topology, so everything that
+// only depends on the layout is worked out once: per group its index in the
+// topology, the positions (see AbstractGroup.getPosition) of the intersection in
+// it as a bitmask, and the rest of the group outside of the intersection.
+public class GroupIntersection {
+    private final Set<Coord> intersection;
+    private final int[] cellIndexes;
+    private final AbstractGroup[] grps = new AbstractGroup[2];
+    private final int[] groupIndexes = new int[2];
+    private final int[] positions = new int[2];
+    private final int[] restPositions = new int[2];
+    private final List<Set<Coord>> restCoords = new ArrayList<>(2);
+
+    GroupIntersection(AbstractGroup a, int groupIndexA, AbstractGroup b, int groupIndexB) {
+        Set<Coord> overlap = new TreeSet<>(a.getCoords());
+        overlap.retainAll(b.getCoords());
+        intersection = Collections.unmodifiableSet(overlap);
+        cellIndexes = new int[overlap.size()];
+        int n = 0;
+        for (int i : a.getCellIndexes()) {
+            if (b.isInGroup(i)) cellIndexes[n++] = i;
+        }
+        grps[0] = a;
+        grps[1] = b;
+        groupIndexes[0] = groupIndexA;
+        groupIndexes[1] = groupIndexB;
+
+        for (int g = 0; g < 2; g++) {
+            AbstractGroup other = grps[1 - g];
+            Set<Coord> rest = new TreeSet<>();
+            for (int p = 0; p < grps[g].getGroupSize(); p++) {
+                if (other.isInGroup(grps[g].getCellIndexes()[p])) {
+                    positions[g] |= 1 << p;
+                } else {
+                    restPositions[g] |= 1 << p;
+                    rest.add(grps[g].getCell(p));
+                }
+            }
+            restCoords.add(Collections.unmodifiableSet(rest));
+        }
+    }
+
+    public AbstractGroup getIntersectionGroup(int i) {
+        return grps[i];
+    }
+
+    // Index of the group in the topology
+    public int getGroupIndex(int i) {
+        return groupIndexes[i];
+    }
+
+    // Positions of the intersection in the group, as a bitmask
+    public int getPositions(int i) {
+        return positions[i];
+    }
+
+    // Positions of the rest of the group, as a bitmask
+    public int getRestPositions(int i) {
+        return restPositions[i];
+    }
+
+    // Cells of the group outside of the intersection
+    public Set<Coord> getRestCoords(int i) {
+        return restCoords.get(i);
+    }
+
+    public Set<Coord> getIntersection() {
+        return intersection;
+    }
+
+    // Do not modify
+    public int[] getCellIndexes() {
+        return cellIndexes;
+    }
+
+    public int size() {
+        return cellIndexes.length;
+    }
+
+    @Override
+    public String toString() {
+        return intersection.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package ottop.sudoku.board;
+
+import java.util.Arrays;
+
+// Immutable table of the peers ("buddies") of every cell: the other cells that
+// share at least one group with it. Depends only on the topology of a puzzle,
+// not on its state, so it is part of the (shared) PuzzleTopology.
+//
+// Peers of a cell are given both as an array of cell indexes (sorted in Coord
+// order, so row by row) and as a bitset over the cell indexes.
+
+public class PeerTable {
+    private final int[][] peers; // cell index to cell indexes of its peers
+    private final long[][] peerMasks; // cell index to bitset of its peers
+
+    PeerTable(PuzzleTopology topology) {
+        Coord[] allCells = topology.getAllCells();
+        int nCells = allCells.length;
+        int nWords = wordCount(nCells);
+
+        peerMasks = new long[nCells][nWords];
+        for (AbstractGroup g : topology.getGroups()) {
+            int[] groupCells = g.getCellIndexes();
+            for (int i : groupCells) {
+                for (int j : groupCells) {
+                    if (i != j) {
+                        peerMasks[i][j >> 6] |= 1L << j;
+                    }
+                }
+            }
+        }
+
+        // Sort by Coord, same order as the TreeSet that getBuddies used to return
+        Integer[] byCoord = new Integer[nCells];
+        for (int i = 0; i < nCells; i++) byCoord[i] = i;
+        Arrays.sort(byCoord, (a, b) -> allCells[a].compareTo(allCells[b]));
+
+        peers = new int[nCells][];
+        for (int i = 0; i < nCells; i++) {
+            int[] cellPeers = new int[bitCount(peerMasks[i])];
+            int n = 0;
+            for (int j : byCoord) {
+                if (isPeer(i, j)) {
+                    cellPeers[n++] = j;
+                }
+            }
+            peers[i] = cellPeers;
+        }
+    }
+
+    // Do not modify the returned array
+    public int[] getPeers(int cellIndex) {
+        return peers[cellIndex];
+    }
+
+    // Do not modify the returned array
+    public long[] getPeerMask(int cellIndex) {
+        return peerMasks[cellIndex];
+    }
+
+    public boolean isPeer(int cellIndex, int otherCellIndex) {
+        return (peerMasks[cellIndex][otherCellIndex >> 6] & (1L << otherCellIndex)) != 0;
+    }
+
+    public int getPeerCount(int cellIndex) {
+        return peers[cellIndex].length;
+    }
+
+    public int getCellCount() {
+        return peers.length;
+    }
+
+    // Number of longs needed for a bitset over all cells
+    public static int wordCount(int nCells) {
+        return (nCells + 63) >> 6;
+    }
+
+    private static int bitCount(long[] mask) {
+        int count = 0;
+        for (long w : mask) count += Long.bitCount(w);
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package ottop.sudoku.board;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Everything about a type of puzzle that does not depend on what is on the board:
+// the cells, the groups, which groups a cell is part of, the peers of every cell
+// and the intersections of the groups. Immutable, so it is created only once per
+// puzzle type and shared by all puzzles of that type, also across threads.
+//
+// Cells are identified by a dense index, enumerated column by column so the
+// index of (x, y) is x * height + y.
+
+public class PuzzleTopology {
+    private static final Map<Class<?>, PuzzleTopology> cache = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final Coord[] allCells;
+    private final AbstractGroup[] groups;
+    private final List<AbstractGroup> groupsWithBoundaries;
+    private final AbstractGroup[][] buddyGroups; // cell index to the groups the cell is part of
+    private final int[][] buddyGroupIndexes; // same, as indexes in getGroups()
+    private final int[][] buddyGroupPositions; // and the position of the cell in each of these
+    private final Map<AbstractGroup, Integer> groupIndexes = new IdentityHashMap<>();
+    private final PeerTable peerTable;
+    private final List<GroupIntersection> intersections;
+
+    public PuzzleTopology(int width, int height, List<AbstractGroup> groups, List<AbstractGroup> groupsWithBoundaries) {
+        this.width = width;
+        this.height = height;
+
+        allCells = new Coord[width * height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                allCells[getCellIndex(x, y)] = Coord.of(x, y);
+            }
+        }
+
+        this.groups = groups.toArray(new AbstractGroup[0]);
+        for (int g = 0; g < this.groups.length; g++) {
+            this.groups[g].indexCells(this);
+            groupIndexes.put(this.groups[g], g);
+        }
+        this.groupsWithBoundaries = groupsWithBoundaries == null ?
+                null : Collections.unmodifiableList(new ArrayList<>(groupsWithBoundaries));
+
+        buddyGroups = new AbstractGroup[allCells.length][];
+        buddyGroupIndexes = new int[allCells.length][];
+        buddyGroupPositions = new int[allCells.length][];
+        for (int i = 0; i < allCells.length; i++) {
+            List<AbstractGroup> grps = new ArrayList<>();
+            for (AbstractGroup g : this.groups) {
+                if (g.isInGroup(i)) {
+                    grps.add(g);
+                }
+            }
+            buddyGroups[i] = grps.toArray(new AbstractGroup[0]);
+            buddyGroupIndexes[i] = grps.stream().mapToInt(groupIndexes::get).toArray();
+            final int cellIndex = i;
+            buddyGroupPositions[i] = grps.stream().mapToInt((g) -> g.getPosition(cellIndex)).toArray();
+        }
+
+        peerTable = new PeerTable(this);
+
+        // Intersections of 1 don't count. These would be seen as "lone values" anyway.
+        List<GroupIntersection> overlaps = new ArrayList<>();
+        for (int a = 0; a < this.groups.length; a++) {
+            for (int b = a + 1; b < this.groups.length; b++) {
+                GroupIntersection overlap = new GroupIntersection(this.groups[a], a, this.groups[b], b);
+                if (overlap.size() > 1) {
+                    overlaps.add(overlap);
+                }
+            }
+        }
+        intersections = Collections.unmodifiableList(overlaps);
+    }
+
+    // Shared topology for a type of puzzle, only created if there is none yet
+    public static PuzzleTopology forPuzzleType(Class<?> puzzleType, Supplier<PuzzleTopology> creator) {
+        return cache.computeIfAbsent(puzzleType, (t) -> creator.get());
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellCount() {
+        return allCells.length;
+    }
+
+    public int getCellIndex(int x, int y) {
+        return x * height + y;
+    }
+
+    public int getCellIndex(Coord c) {
+        return getCellIndex(c.getX(), c.getY());
+    }
+
+    // Do not modify the returned arrays
+
+    public Coord[] getAllCells() {
+        return allCells;
+    }
+
+    public AbstractGroup[] getGroups() {
+        return groups;
+    }
+
+    public AbstractGroup[] getBuddyGroups(int cellIndex) {
+        return buddyGroups[cellIndex];
+    }
+
+    public int[] getBuddyGroupIndexes(int cellIndex) {
+        return buddyGroupIndexes[cellIndex];
+    }
+
+    // Position of the cell in each of its groups, same order as getBuddyGroupIndexes
+    public int[] getBuddyGroupPositions(int cellIndex) {
+        return buddyGroupPositions[cellIndex];
+    }
+
+    // Index of the group in getGroups(), -1 if it is not part of this topology
+    public int getGroupIndex(AbstractGroup g) {
+        Integer index = groupIndexes.get(g);
+        return index == null ? -1 : index;
+    }
+
+    public List<AbstractGroup> getGroupsWithVisualBoundary() {
+        return groupsWithBoundaries;
+    }
+
+    public PeerTable getPeerTable() {
+        return peerTable;
+    }
+
+    // All pairs of groups that share more than one cell
+    public List<GroupIntersection> getIntersections() {
+        return intersections;
+    }
+}
@@ -11,7 +11,7 @@ public class RectangularGroup extends AbstractGroup {
         List<Coord> coords = new ArrayList<>();
         for (int x=startX; x<endX; x++) {
             for (int y=startY; y<endY; y++) {
-                Coord c = new Coord(x, y);
+                Coord c = Coord.of(x, y);
                 coords.add(c);
             }
         }
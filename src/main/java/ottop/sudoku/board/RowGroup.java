@@ -19,6 +19,6 @@ public class RowGroup extends RectangularGroup {
 //    }
 
     public int getRow() {
-        return coords.keySet().iterator().next().getY();
+        return cells[0].getY();
     }
 }
@@ -0,0 +1,52 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.Coord;
+
+import java.util.Map;
+import java.util.Set;
+
+public class AlmostLockedSetEliminationReason extends Explanation {
+
+    private final Set<Coord> set1;
+    private final Set<Coord> set2;
+    private final Set<Coord> pivotSet; // null for ALS-XZ
+    private final Set<String> linkSymbols;
+
+    public AlmostLockedSetEliminationReason(String symbol,
+                                            Coord removedFromCell,
+                                            Set<Coord> set1,
+                                            Set<Coord> set2,
+                                            Set<Coord> pivotSet,
+                                            Set<String> linkSymbols) {
+        super(symbol, removedFromCell);
+        this.set1 = set1;
+        this.set2 = set2;
+        this.pivotSet = pivotSet;
+        this.linkSymbols = linkSymbols;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because it has to be in ").append(set1).append(" or in ").append(set2);
+        if (pivotSet == null) {
+            result.append(", which cannot both have ").append(linkSymbols.iterator().next()).append(" (ALS-XZ)");
+        } else {
+            result.append(", as ").append(pivotSet).append(" has one of ").append(linkSymbols).append(" (ALS-XY-Wing)");
+        }
+        return result.toString();
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Map<String, Set<Coord>> result = getHighlightCells(set1);
+        result.put("set2", set2);
+        if (pivotSet != null) {
+            result.put("pivot", pivotSet);
+        }
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        return pivotSet == null ? 8 : 9;
+    }
+}
@@ -0,0 +1,55 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.Coord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class AlternatingChainEliminationReason extends Explanation {
+
+    // The nodes of the chain, alternating false and true when the first one is
+    // false. Group nodes have more than one cell.
+    private final List<String> nodeSymbols;
+    private final List<Set<Coord>> nodeCells;
+
+    public AlternatingChainEliminationReason(Set<String> symbols,
+                                             Coord removedFromCell,
+                                             List<String> nodeSymbols,
+                                             List<Set<Coord>> nodeCells) {
+        super(symbols, removedFromCell);
+        this.nodeSymbols = nodeSymbols;
+        this.nodeCells = nodeCells;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because one end of ");
+        for (int i = 0; i < nodeSymbols.size(); i++) {
+            if (i > 0) result.append(i % 2 == 1 ? " = " : " - ");
+            result.append("(").append(nodeSymbols.get(i)).append(")");
+            Set<Coord> cells = nodeCells.get(i);
+            result.append(cells.size() == 1 ? cells.iterator().next() : cells);
+        }
+        result.append(" is true (AIC)");
+        return result.toString();
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Set<Coord> falseCells = new TreeSet<>();
+        Set<Coord> trueCells = new TreeSet<>();
+        for (int i = 0; i < nodeCells.size(); i++) {
+            (i % 2 == 0 ? falseCells : trueCells).addAll(nodeCells.get(i));
+        }
+        Map<String, Set<Coord>> result = getHighlightCells(falseCells);
+        result.put("true", trueCells);
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        // By the number of links
+        return nodeSymbols.size() <= 6 ? 8 : 9;
+    }
+}
@@ -0,0 +1,52 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class HiddenGroupEliminationReason extends Explanation {
+
+    private final AbstractGroup group;
+    private final Set<String> hiddenSymbols;
+    private final Set<Coord> hiddenCells;
+
+    public HiddenGroupEliminationReason(Set<String> symbols,
+                                        Coord removedFromCell,
+                                        AbstractGroup group,
+                                        Set<String> hiddenSymbols,
+                                        Set<Coord> hiddenCells) {
+        super(symbols, removedFromCell);
+        this.group = group;
+        this.hiddenSymbols = hiddenSymbols;
+        this.hiddenCells = hiddenCells;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because ").append(hiddenSymbols).append(" can only be in ").append(hiddenCells);
+        result.append(" in ").append(group);
+        String groupLabel = "Group";
+        if (hiddenCells.size()==2) groupLabel = "Pair";
+        if (hiddenCells.size()==3) groupLabel = "Trio";
+        if (hiddenCells.size()==4) groupLabel = "Quad";
+
+        result.append(" (Hidden ").append(groupLabel).append(")");
+        return result.toString();
+    }
+
+    public List<AbstractGroup> getHighlightGroups() {
+        return List.of(group);
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        return getHighlightCells(hiddenCells);
+    }
+
+    @Override
+    public int getDifficulty() {
+        return 4;
+    }
+}
@@ -0,0 +1,45 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.Coord;
+
+import java.util.Map;
+import java.util.Set;
+
+public class TemplateEliminationReason extends Explanation {
+
+    private final int nTemplates;
+    private final Set<Coord> fixedCells; // in all of the templates
+
+    public TemplateEliminationReason(String symbol,
+                                     Coord removedFromCell,
+                                     int nTemplates,
+                                     Set<Coord> fixedCells) {
+        super(symbol, removedFromCell);
+        this.nTemplates = nTemplates;
+        this.fixedCells = fixedCells;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        if (nTemplates == 1) {
+            result.append(" because the only way it still fits in all groups does not use this cell");
+        } else {
+            result.append(" because none of the ").append(nTemplates);
+            result.append(" ways it still fits in all groups uses this cell");
+        }
+        if (!fixedCells.isEmpty()) {
+            result.append(", it has to be in ").append(fixedCells);
+        }
+        result.append(" (Templates)");
+        return result.toString();
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        return getHighlightCells(fixedCells);
+    }
+
+    @Override
+    public int getDifficulty() {
+        return 8;
+    }
+}
@@ -0,0 +1,51 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.Coord;
+
+import java.util.Map;
+import java.util.Set;
+
+public class UniqueRectangleEliminationReason extends Explanation {
+
+    private final Set<Coord> corners;
+    private final Set<String> pairSymbols;
+    private final String type;
+    private final Set<Coord> subsetCells; // only for type 3
+
+    public UniqueRectangleEliminationReason(Set<String> symbols,
+                                            Coord removedFromCell,
+                                            Set<Coord> corners,
+                                            Set<String> pairSymbols,
+                                            String type,
+                                            Set<Coord> subsetCells) {
+        super(symbols, removedFromCell);
+        this.corners = corners;
+        this.pairSymbols = pairSymbols;
+        this.type = type;
+        this.subsetCells = subsetCells;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because otherwise ").append(pairSymbols).append(" could be swapped in ").append(corners);
+        if (subsetCells != null) {
+            result.append(", naked with ").append(subsetCells);
+        }
+        result.append(" (Unique Rectangle ").append(type).append(")");
+        return result.toString();
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Map<String, Set<Coord>> result = getHighlightCells(corners);
+        if (subsetCells != null) {
+            result.put("subset", subsetCells);
+        }
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        // Type 1 is the easiest to see
+        return "Type 1".equals(type) ? 5 : 6;
+    }
+}
@@ -0,0 +1,59 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class WWingEliminationReason extends Explanation {
+
+    private final Coord wing1;
+    private final Coord wing2;
+    private final String linkSymbol;
+    private final AbstractGroup linkGroup;
+    private final Coord linkEnd1;
+    private final Coord linkEnd2;
+
+    public WWingEliminationReason(String symbol,
+                                  Coord removedFromCell,
+                                  Coord wing1,
+                                  Coord wing2,
+                                  String linkSymbol,
+                                  AbstractGroup linkGroup,
+                                  Coord linkEnd1,
+                                  Coord linkEnd2) {
+        super(symbol, removedFromCell);
+        this.wing1 = wing1;
+        this.wing2 = wing2;
+        this.linkSymbol = linkSymbol;
+        this.linkGroup = linkGroup;
+        this.linkEnd1 = linkEnd1;
+        this.linkEnd2 = linkEnd2;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because it has to be in ").append(wing1).append(" or ").append(wing2);
+        result.append(", as ").append(linkSymbol).append(" in ").append(linkGroup);
+        result.append(" has to be in ").append(linkEnd1).append(" or ").append(linkEnd2).append(" (W-Wing)");
+        return result.toString();
+    }
+
+    public List<AbstractGroup> getHighlightGroups() {
+        return List.of(linkGroup);
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Map<String, Set<Coord>> result = getHighlightCells(new TreeSet<>(Set.of(wing1, wing2)));
+        result.put("link", new TreeSet<>(Set.of(linkEnd1, linkEnd2)));
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        return 7;
+    }
+}
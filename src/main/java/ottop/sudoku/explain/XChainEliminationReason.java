@@ -0,0 +1,82 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+
+import java.util.*;
+
+public class XChainEliminationReason extends Explanation {
+
+    private final String technique;
+    private final List<Coord> chain; // null for coloring
+    private final List<AbstractGroup> strongLinkGroups;
+    private final Set<Coord> color1;
+    private final Set<Coord> color2;
+    private final boolean isWrap;
+
+    // The symbol is in the first or last cell of the chain
+    public XChainEliminationReason(String symbol,
+                                   Coord removedFromCell,
+                                   List<Coord> chain,
+                                   List<AbstractGroup> strongLinkGroups,
+                                   String technique) {
+        super(symbol, removedFromCell);
+        this.technique = technique;
+        this.chain = chain;
+        this.strongLinkGroups = strongLinkGroups;
+        // Cells alternate between not having and having the symbol
+        this.color1 = new TreeSet<>();
+        this.color2 = new TreeSet<>();
+        for (int i = 0; i < chain.size(); i++) {
+            (i % 2 == 0 ? color1 : color2).add(chain.get(i));
+        }
+        this.isWrap = false;
+    }
+
+    // The symbol is in all cells of one of the colors
+    public XChainEliminationReason(String symbol,
+                                   Coord removedFromCell,
+                                   Set<Coord> color1,
+                                   Set<Coord> color2,
+                                   boolean isWrap) {
+        super(symbol, removedFromCell);
+        this.technique = "Simple Coloring";
+        this.chain = null;
+        this.strongLinkGroups = null;
+        this.color1 = color1;
+        this.color2 = color2;
+        this.isWrap = isWrap;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        if (chain != null) {
+            result.append(" because it has to be in ").append(chain.get(0));
+            result.append(" or ").append(chain.get(chain.size() - 1));
+            result.append(", the ends of ").append(chain);
+        } else if (isWrap) {
+            result.append(" because it would be twice in a group in ").append(color1);
+            result.append(" so it has to be in ").append(color2);
+        } else {
+            result.append(" because it has to be in either ").append(color1).append(" or ").append(color2);
+        }
+        result.append(" (").append(technique).append(")");
+        return result.toString();
+    }
+
+    public List<AbstractGroup> getHighlightGroups() {
+        return strongLinkGroups;
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Map<String, Set<Coord>> result = getHighlightCells(color1);
+        result.put("color2", color2);
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        if (chain != null && chain.size() == 4) return 6;
+        return 7;
+    }
+}
@@ -13,16 +13,31 @@ public class XWingEliminationReason extends Explanation {
     private final AbstractGroup removedFromGroup;
     private final Set<AbstractGroup> groups1;
     private final Set<AbstractGroup> groups2;
+    private final Set<Coord> fins; // null if not finned
+    private final boolean isSashimi;
 
     public XWingEliminationReason(String symbol,
                                   Set<Coord> removedFromCells,
                                   AbstractGroup removedFromGroup,
                                   Set<AbstractGroup> groups1,
                                   Set<AbstractGroup> groups2) {
+        this(symbol, removedFromCells, removedFromGroup, groups1, groups2, null, false);
+    }
+
+    // Finned fish: only removed from cells that see all of the fins
+    public XWingEliminationReason(String symbol,
+                                  Set<Coord> removedFromCells,
+                                  AbstractGroup removedFromGroup,
+                                  Set<AbstractGroup> groups1,
+                                  Set<AbstractGroup> groups2,
+                                  Set<Coord> fins,
+                                  boolean isSashimi) {
         super(symbol, removedFromCells);
         this.removedFromGroup = removedFromGroup;
         this.groups1 = groups1;
         this.groups2 = groups2;
+        this.fins = fins;
+        this.isSashimi = isSashimi;
     }
 
 //                                " of " + g + " because " + myPuzzle.symbolCodeToSymbol(symbolCode) + " has to be in " +
@@ -36,8 +51,12 @@ public class XWingEliminationReason extends Explanation {
         if (groups1.size() == 2) name = "X-Wing";
         if (groups1.size() == 3) name = "Swordfish";
         if (groups1.size() == 4) name = "Jellyfish";
+        if (fins != null) name = (isSashimi ? "Sashimi " : "Finned ") + name;
 
         result.append(groups1).append(" X ").append(groups2).append(" (" + name + ")");
+        if (fins != null) {
+            result.append(" or in fins ").append(fins);
+        }
         return result.toString();
     }
 
@@ -52,12 +71,16 @@ public class XWingEliminationReason extends Explanation {
         }
         xwingCells.retainAll(allGroup2);
 
-        return getHighlightCells(xwingCells);
+        Map<String, Set<Coord>> result = getHighlightCells(xwingCells);
+        if (fins != null) {
+            result.put("fins", fins);
+        }
+        return result;
     }
 
     @Override
     public int getDifficulty() {
-        // XWing will be 5, Swordfish 6, Jellyfish 7 etc.
-        return 3 + groups1.size();
+        // XWing will be 5, Swordfish 6, Jellyfish 7 etc. Fins make it one harder.
+        return 3 + groups1.size() + (fins != null ? 1 : 0);
     }
 }
@@ -0,0 +1,43 @@
+package ottop.sudoku.explain;
+
+import ottop.sudoku.board.Coord;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class XYZWingEliminationReason extends Explanation {
+
+    private final Coord pivot;
+    private final Coord pincer1;
+    private final Coord pincer2;
+
+    public XYZWingEliminationReason(String symbol,
+                                    Coord removedFromCell,
+                                    Coord pivot,
+                                    Coord pincer1,
+                                    Coord pincer2) {
+        super(symbol, removedFromCell);
+        this.pivot = pivot;
+        this.pincer1 = pincer1;
+        this.pincer2 = pincer2;
+    }
+
+    public String toString() {
+        StringBuilder result = new StringBuilder(super.toString());
+        result.append(" because it has to be in ").append(pivot).append(", ").append(pincer1);
+        result.append(" or ").append(pincer2).append(" (XYZ-Wing)");
+        return result.toString();
+    }
+
+    public Map<String, Set<Coord>> getHighlightCells() {
+        Map<String, Set<Coord>> result = getHighlightCells(Set.of(pivot));
+        result.put("pincers", new TreeSet<>(Set.of(pincer1, pincer2)));
+        return result;
+    }
+
+    @Override
+    public int getDifficulty() {
+        return 7;
+    }
+}
@@ -41,6 +41,15 @@ public class Controller {
     public Button hintButton;
     public Button redoButton;
     public CheckBox cbForcingChains;
+    public CheckBox cbXChains;
+    public CheckBox cbWings;
+    public CheckBox cbUniqueRectangles;
+    public CheckBox cbTemplates;
+    public CheckBox cbAlmostLockedSets;
+    public CheckBox cbAlternatingChains;
+
+    // Time the forcing chains search may take for a move or hint
+    private static final long HINT_MILLIS = 2000;
 
     // Both set when puzzle dropdown changes
     private ISudoku myPuzzle = null;
@@ -89,12 +98,10 @@ public class Controller {
         // puzzle & solver should only be set here
         myPuzzle = initialPuzzle;
 
-        currentSolver = (new SudokuSolver(myPuzzle))
-                .setEliminateIntersectionRadiation(cbRadiation.isSelected())
-                .setEliminateNakedPairs(cbNakedPairs.isSelected())
-                .setEliminateXWings(cbXWings.isSelected())
-                .setEliminateForcingChains(cbForcingChains.isSelected())
-                .setEarlyStop(false);
+        currentSolver = new SudokuSolver(myPuzzle);
+        setEliminationMethods();
+        // Keep the UI responsive, better a simpler hint than waiting for the best one
+        currentSolver.getForcingChainsBudget().setMaxMillis(HINT_MILLIS);
 
         // Puzzle level
 //        System.out.println("Assessing difficulty of: " + String.valueOf(myPuzzle));
@@ -184,14 +191,26 @@ public class Controller {
     }
 
     public void eliminationAction(ActionEvent actionEvent) {
+        setEliminationMethods();
+
+        showEliminationReasons();
+        redrawBoard();
+    }
+
+    // Methods as checked, unique rectangles are skipped by the solver itself
+    // when the puzzle has more than one solution
+    private void setEliminationMethods() {
         currentSolver.setEliminateIntersectionRadiation(cbRadiation.isSelected())
                 .setEliminateNakedPairs(cbNakedPairs.isSelected())
                 .setEliminateXWings(cbXWings.isSelected())
+                .setEliminateXChains(cbXChains.isSelected())
+                .setEliminateWings(cbWings.isSelected())
+                .setEliminateUniqueRectangles(cbUniqueRectangles.isSelected())
+                .setEliminateTemplates(cbTemplates.isSelected())
+                .setEliminateAlmostLockedSets(cbAlmostLockedSets.isSelected())
+                .setEliminateAlternatingChains(cbAlternatingChains.isSelected())
                 .setEliminateForcingChains(cbForcingChains.isSelected())
                 .setEarlyStop(false);
-
-        showEliminationReasons();
-        redrawBoard();
     }
 
     public void undoAction(ActionEvent actionEvent) {
@@ -210,7 +229,7 @@ public class Controller {
         int y = (int) Math.floor(myPuzzle.getHeight() * mouseEvent.getY() / gameCanvas.getHeight());
         if (x >= 0 && x <= myPuzzle.getWidth()) {
             if (y >= 0 && y <= myPuzzle.getHeight()) {
-                labelPosition.setText(String.valueOf(new Coord(x, y)));
+                labelPosition.setText(String.valueOf(Coord.of(x, y)));
             }
         }
     }
@@ -231,7 +250,7 @@ public class Controller {
     public void canvasMouseClick(MouseEvent mouseEvent) {
         int x = (int) Math.floor(myPuzzle.getWidth() * mouseEvent.getX() / gameCanvas.getWidth());
         int y = (int) Math.floor(myPuzzle.getHeight() * mouseEvent.getY() / gameCanvas.getHeight());
-        currentPosition = new Coord(x, y);
+        currentPosition = Coord.of(x, y);
 
         labelPosition.setText(String.valueOf(currentPosition));
 
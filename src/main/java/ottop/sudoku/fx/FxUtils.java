@@ -29,16 +29,16 @@ public class FxUtils {
             double posXRight = getCellX(canvas, p, x+1);
             double posYTop = getCellY(canvas, p, y);
             double posYBottom = getCellY(canvas, p, y+1);
-            if (x == 0 || !g.isInGroup(new Coord(x-1, y))) {
+            if (x == 0 || !g.isInGroup(Coord.of(x-1, y))) {
                 gc.strokeLine(posXLeft, posYBottom, posXLeft, posYTop);
             }
-            if (x > p.getWidth() || !g.isInGroup(new Coord(x+1, y))) {
+            if (x > p.getWidth() || !g.isInGroup(Coord.of(x+1, y))) {
                 gc.strokeLine(posXRight, posYBottom, posXRight, posYTop);
             }
-            if (y == 0 || !g.isInGroup(new Coord(x, y-1))) {
+            if (y == 0 || !g.isInGroup(Coord.of(x, y-1))) {
                 gc.strokeLine(posXLeft, posYTop, posXRight, posYTop);
             }
-            if (y > p.getHeight() || !g.isInGroup(new Coord(x, y+1))) {
+            if (y > p.getHeight() || !g.isInGroup(Coord.of(x, y+1))) {
                 gc.strokeLine(posXLeft, posYBottom, posXRight, posYBottom);
             }
         }
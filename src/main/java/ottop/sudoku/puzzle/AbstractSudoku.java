@@ -2,6 +2,8 @@ package ottop.sudoku.puzzle;
 
 import ottop.sudoku.board.Coord;
 import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.board.PuzzleTopology;
 import ottop.sudoku.solver.Updateable;
 
 import java.util.*;
@@ -9,16 +11,14 @@ import java.util.*;
 public abstract class AbstractSudoku implements ISudoku {
     final String name;
     final List<String> possibleSymbols; // [0] = symbol for empty cell, 1..N are for the real symbols
-    Coord[] allCells;
 
-    // TODO: consider making this String. Drop symbolCode all over the place. Drop stateful groups.
-    int[][] board; // [x][y] to symbolCode
-    Map<Coord, AbstractGroup[]> buddyGroups;
+    // Cells, groups, peers etc. are shared by all puzzles of the same type
+    final PuzzleTopology topology;
 
-    // Groups also keep state of which cells in the group are occupied
+    // The state of this puzzle: cell index to symbolCode
+    int[] board;
 
-    AbstractGroup[] groups = null;
-    List<AbstractGroup> groupsWithBoundaries = null;
+    List<AbstractGroup> groupsWithBoundaries = null; // only set while creating the groups
 
     Updateable solver = null;
     List<Map.Entry<Coord, String>> undoStack = new ArrayList<>();
@@ -27,30 +27,15 @@ public abstract class AbstractSudoku implements ISudoku {
     public AbstractSudoku(String name, String[] symbols, int[][] board) {
         this.name = name;
         this.possibleSymbols = Arrays.asList(symbols);
-        this.board = board; // new int[getWidth()][getHeight()];
-
-        // Static list of all coordinates in the board
-        List<Coord> cells = new ArrayList<>();
-        for (int x = 0; x < getWidth(); x++) {
-            for (int y = 0; y < getHeight(); y++) {
-                cells.add(new Coord(x, y));
-            }
-        }
-        this.allCells = cells.toArray(new Coord[0]);
 
         // Groups of cells - different for different Sudoku types
-        this.groups = createGroups().toArray(new AbstractGroup[0]);
-
-        // Buddy groups are the groups a cell is part of
-        buddyGroups = new HashMap<>();
-        for (Coord c: allCells) {
-            List<AbstractGroup> grps = new ArrayList<>();
-            for (AbstractGroup g : groups) {
-                if (g.isInGroup(c)) {
-                    grps.add(g);
-                }
-            }
-            buddyGroups.put(c, grps.toArray(new AbstractGroup[0]));
+        this.topology = PuzzleTopology.forPuzzleType(getClass(),
+                () -> new PuzzleTopology(getWidth(), getHeight(), createGroups(), groupsWithBoundaries));
+
+        Coord[] allCells = topology.getAllCells();
+        this.board = new int[allCells.length];
+        for (int i = 0; i < allCells.length; i++) {
+            this.board[i] = board[allCells[i].getX()][allCells[i].getY()];
         }
     }
 
@@ -65,21 +50,10 @@ public abstract class AbstractSudoku implements ISudoku {
             e.printStackTrace();
         }
 
-        c.allCells = this.allCells.clone();
+        // Deep copy of board, the topology is shared
+        c.board = board.clone();
 
-        // Deep copy of board
-        c.board = new int[board.length][];
-        for (int i = 0; i < board.length; i++) {
-            c.board[i] = Arrays.copyOf(board[i], board[i].length);
-        }
-
-        // Reset state
-
-        for (AbstractGroup g: c.groups) {
-            g.resetGroup(c);
-        }
-
-        c.undoStack.clear();
+        c.undoStack = new ArrayList<>();
         c.undoStackPointer = -1;
 
         return c;
@@ -93,16 +67,10 @@ public abstract class AbstractSudoku implements ISudoku {
 
         while (undoStackPointer >= 0) {
             Map.Entry<Coord, String> move = undoStack.get(undoStackPointer);
-            board[move.getKey().getX()][move.getKey().getY()] = 0;
+            board[getCellIndex(move.getKey())] = 0;
             undoStackPointer--;
         }
         undoStack.clear();
-
-        // Reset state
-
-        for (AbstractGroup g: groups) {
-            g.resetGroup(this);
-        }
     }
 
     @Override
@@ -112,9 +80,9 @@ public abstract class AbstractSudoku implements ISudoku {
         if (name != null && name.length() > 0) result.append(name).append(":\n");
         for (int y = 0; y < getHeight(); y++) {
             for (int x = 0; x < getWidth(); x++) {
-                Coord c = new Coord(x, y);
-                if (isOccupied(c)) {
-                    result.append(getSymbolAtCoordinates(c));
+                int cellIndex = getCellIndex(x, y);
+                if (isOccupied(cellIndex)) {
+                    result.append(symbolCodeToSymbol(board[cellIndex]));
                 } else {
                     result.append(".");
                 }
@@ -136,10 +104,8 @@ public abstract class AbstractSudoku implements ISudoku {
 
     @Override
     public boolean isComplete() {
-        for (int x=0; x<getWidth(); x++) {
-            for (int y=0; y<getHeight(); y++) {
-                if (board[x][y] == 0) return false;
-            }
+        for (int symbolCode : board) {
+            if (symbolCode == 0) return false;
         }
         return true;
     }
@@ -147,10 +113,7 @@ public abstract class AbstractSudoku implements ISudoku {
     @Override
     public boolean doMove(Coord coord, String symbol) { // x, y start at 0
 
-        board[coord.getX()][coord.getY()] = symbolToSymbolCode(symbol);
-        for (AbstractGroup g: getBuddyGroups(coord)) {
-            g.resetGroup(this);
-        }
+        board[getCellIndex(coord)] = symbolToSymbolCode(symbol);
 
         // Put on undo stack, remove any entries after (because of undo/redo)
 
@@ -160,8 +123,8 @@ public abstract class AbstractSudoku implements ISudoku {
             undoStack.remove(undoStack.size()-1);
         }
 
-        // Update all candidates
-        solver.update();
+        // Update the candidates for just this placement
+        solver.update(coord);
 
         return true;
     }
@@ -182,10 +145,7 @@ public abstract class AbstractSudoku implements ISudoku {
             Map.Entry<Coord, String> lastMove = undoStack.get(undoStackPointer);
             Coord coord = lastMove.getKey();
 
-            board[coord.getX()][coord.getY()] = 0;
-            for (AbstractGroup g: getBuddyGroups(coord)) {
-                g.resetGroup(this);
-            }
+            board[getCellIndex(coord)] = 0;
 
             undoStackPointer--;
 
@@ -207,13 +167,10 @@ public abstract class AbstractSudoku implements ISudoku {
 
             int symbolCode = symbolToSymbolCode(move.getValue());
 
-            board[coord.getX()][coord.getY()] = symbolCode;
-            for (AbstractGroup g: getBuddyGroups(coord)) {
-                g.resetGroup(this);
-            }
+            board[getCellIndex(coord)] = symbolCode;
 
-            // Update all candidates
-            solver.update();
+            // Redo is just another placement
+            solver.update(coord);
 
             return move;
         }
@@ -222,35 +179,43 @@ public abstract class AbstractSudoku implements ISudoku {
 
     @Override
     public boolean isInconsistent() {
-        boolean isInconsistent = false;
-        for (AbstractGroup g : groups) {
-            if (g.isInconsistent()) {
-                isInconsistent = true;
-                break;
+        for (AbstractGroup g : topology.getGroups()) {
+            int symbolCodes = 0;
+            for (int i : g.getCellIndexes()) {
+                int symbolCode = board[i];
+                if (symbolCode != 0) {
+                    if ((symbolCodes & (1 << symbolCode)) != 0) return true;
+                    symbolCodes |= 1 << symbolCode;
+                }
             }
         }
-        return isInconsistent;
+        return false;
     }
 
     @Override
     public AbstractGroup[] getGroups() {
-        return groups;
+        return topology.getGroups();
     }
 
     @Override
     public AbstractGroup[] getBuddyGroups(Coord c) {
-        return buddyGroups.get(c);
+        return topology.getBuddyGroups(getCellIndex(c));
+    }
+
+    @Override
+    public AbstractGroup[] getBuddyGroups(int cellIndex) {
+        return topology.getBuddyGroups(cellIndex);
     }
 
     @Override
     public List<AbstractGroup> getGroupsWithVisualBoundary()
     {
-        return groupsWithBoundaries;
+        return topology.getGroupsWithVisualBoundary();
     }
 
     @Override
     public Coord[] getAllCells() {
-        return allCells;
+        return topology.getAllCells();
     }
 
     @Override
@@ -265,17 +230,37 @@ public abstract class AbstractSudoku implements ISudoku {
 
     @Override
     public int getSymbolCodeAtCoordinates(Coord coord) {
-        return board[coord.getX()][coord.getY()];
+        return board[getCellIndex(coord)];
     }
 
     @Override
     public String getSymbolAtCoordinates(Coord coord) {
-        return symbolCodeToSymbol(board[coord.getX()][coord.getY()]);
+        return symbolCodeToSymbol(board[getCellIndex(coord)]);
     }
 
     @Override
     public boolean isOccupied(Coord coord) {
-        return board[coord.getX()][coord.getY()] != 0;
+        return board[getCellIndex(coord)] != 0;
+    }
+
+    // Cells are enumerated column by column, see PuzzleTopology
+    @Override
+    public int getCellIndex(Coord coord) {
+        return topology.getCellIndex(coord);
+    }
+
+    int getCellIndex(int x, int y) {
+        return topology.getCellIndex(x, y);
+    }
+
+    @Override
+    public int getSymbolCodeAtCell(int cellIndex) {
+        return board[cellIndex];
+    }
+
+    @Override
+    public boolean isOccupied(int cellIndex) {
+        return board[cellIndex] != 0;
     }
 
     @Override
@@ -298,17 +283,29 @@ public abstract class AbstractSudoku implements ISudoku {
         Set<Coord> buddies = new TreeSet<>();
 
         if (coord != null) {
-            for (AbstractGroup g : groups) {
-                if (g.getCoords().contains(coord)) {
-                    buddies.addAll(g.getCoords());
-                }
+            for (int i : getPeers(getCellIndex(coord))) {
+                buddies.add(topology.getAllCells()[i]);
             }
-            buddies.remove(coord); // you are not your own buddy
         }
 
         return buddies;
     }
 
+    @Override
+    public int[] getPeers(int cellIndex) {
+        return topology.getPeerTable().getPeers(cellIndex);
+    }
+
+    @Override
+    public PeerTable getPeerTable() {
+        return topology.getPeerTable();
+    }
+
+    @Override
+    public PuzzleTopology getTopology() {
+        return topology;
+    }
+
     static int[][] readCommaSeparatedBoard(String[] sudokuRows, int width, int height, String[] symbols) {
         if (sudokuRows.length != height)
             throw new IllegalArgumentException("Initialization must have " + height + " rows");
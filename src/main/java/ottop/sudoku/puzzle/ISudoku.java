@@ -1,6 +1,8 @@
 package ottop.sudoku.puzzle;
 
 import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.board.PuzzleTopology;
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.solver.Updateable;
 
@@ -29,6 +31,14 @@ public interface ISudoku extends Cloneable {
 
     int getSymbolCodeAtCoordinates(Coord coord);
 
+    // Cells are also identified by a dense index 0..N-1, their position in getAllCells()
+
+    int getCellIndex(Coord coord);
+
+    boolean isOccupied(int cellIndex);
+
+    int getSymbolCodeAtCell(int cellIndex);
+
     int getSymbolCodeRange(); // for standard 9x9 puzzle will return 10 as 0 is always for empty cells
 
     int getWidth(); // will be 9 for standard puzzle
@@ -51,8 +61,18 @@ public interface ISudoku extends Cloneable {
 
     AbstractGroup[] getBuddyGroups(Coord coord);
 
+    AbstractGroup[] getBuddyGroups(int cellIndex);
+
     Set<Coord> getBuddies(Coord coord);
 
+    // Peers of a cell as cell indexes, from a table shared by all puzzles of the same type
+    int[] getPeers(int cellIndex);
+
+    PeerTable getPeerTable();
+
+    // Cells, groups etc. shared by all puzzles of the same type
+    PuzzleTopology getTopology();
+
     String getName();
     
     boolean isAtOverlay(Coord c);
@@ -1,6 +1,5 @@
 package ottop.sudoku.puzzle;
 
-import ottop.sudoku.board.Coord;
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.ColumnGroup;
 import ottop.sudoku.board.RectangularGroup;
@@ -63,11 +62,11 @@ public class Sudoku10x10 extends AbstractSudoku {
             for (int x = 0; x < getWidth(); x++) {
                 if (x > 0) result.append("|");
                 if (x == 5) result.append("|"); // group sep
-                String symbol = getSymbolAtCoordinates(new Coord(x, y));
+                String symbol = symbolCodeToSymbol(getSymbolCodeAtCell(getCellIndex(x, y)));
                 if (symbol.length() == 1) {
-                    result.append(" ").append(getSymbolAtCoordinates(new Coord(x, y)));
+                    result.append(" ").append(symbol);
                 } else {
-                    result.append(getSymbolAtCoordinates(new Coord(x, y)));
+                    result.append(symbol);
                 }
             }
             result.append("\n");
@@ -0,0 +1,240 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.explain.AlmostLockedSetEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+
+// Almost Locked Sets: ALS-XZ and ALS-XY-Wing.
+//
+// An almost locked set (ALS) is a set of N cells in one group that together have
+// N+1 candidates. Take away any one of these and the others are locked in it.
+//
+// Two sets that do not overlap have a restricted common candidate x when all
+// cells of the one with x see all cells of the other with x. Then x is in at
+// most one of them, so the other is locked.
+//
+// ALS-XZ: sets A and B with restricted common x. For any other common candidate
+// z, z is in A or in B, so it can be removed from the cells that see all z's
+// of both.
+// ALS-XY-Wing: sets A and B both have a restricted common with a third set C,
+// x with A and y with C. C has x or y, so A or B is locked. Same elimination
+// for a z that A and B have in common.
+//
+// Once per round all of the sets are put in a catalog, as bitsets of the cells
+// (see PeerTable) by symbol together with the cells that see all of those. The
+// restricted commons are then just lookups in these.
+
+public class AlmostLockedSetEliminator extends Eliminator {
+    private static final int MAX_SET_SIZE = 4;
+
+    private final PeerTable peerTable;
+    private final int nCells;
+    private final int nWords;
+
+    // Of the current round
+    private final List<Als> catalog = new ArrayList<>();
+    private List<List<Als>> setsBySymbol; // by symbol code
+    private long[][] symbolCells; // cells by symbol code
+
+    private class Als {
+        final int[] cellIndexes;
+        final long[] cells;
+        final int mask;
+        final long[][] symbolCells; // by symbol code, null if not a candidate
+        final long[][] seenBy; // by symbol code, cells that see all cells of the set with that symbol
+        final List<Als> linked = new ArrayList<>(); // restricted commons with these
+        final List<Integer> linkSymbols = new ArrayList<>(); // on these symbol codes
+
+        Als(int[] cellIndexes, int mask) {
+            this.cellIndexes = cellIndexes;
+            this.mask = mask;
+            cells = new long[nWords];
+            symbolCells = new long[myPuzzle.getSymbolCodeRange()][];
+            seenBy = new long[myPuzzle.getSymbolCodeRange()][];
+            for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+                symbolCells[s] = new long[nWords];
+                seenBy[s] = new long[nWords];
+                Arrays.fill(seenBy[s], -1L);
+            }
+            for (int i : cellIndexes) {
+                cells[i >> 6] |= 1L << i;
+                int cellMask = candidates.get(i);
+                for (int s = CandidateGrid.firstSymbol(cellMask); s >= 0; s = CandidateGrid.nextSymbol(cellMask, s)) {
+                    symbolCells[s][i >> 6] |= 1L << i;
+                    long[] peers = peerTable.getPeerMask(i);
+                    for (int w = 0; w < nWords; w++) seenBy[s][w] &= peers[w];
+                }
+            }
+        }
+
+        boolean overlaps(Als other) {
+            for (int w = 0; w < nWords; w++) {
+                if ((cells[w] & other.cells[w]) != 0) return true;
+            }
+            return false;
+        }
+
+        // All cells of the other set with the symbol see all of these
+        boolean isRestrictedCommon(Als other, int symbolCode) {
+            for (int w = 0; w < nWords; w++) {
+                if ((other.symbolCells[symbolCode][w] & ~seenBy[symbolCode][w]) != 0) return false;
+            }
+            return true;
+        }
+
+        Set<Coord> getCoords() {
+            Set<Coord> coords = new TreeSet<>();
+            for (int i : cellIndexes) coords.add(myPuzzle.getAllCells()[i]);
+            return coords;
+        }
+    }
+
+    AlmostLockedSetEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.peerTable = myPuzzle.getTopology().getPeerTable();
+        this.nCells = myPuzzle.getAllCells().length;
+        this.nWords = PeerTable.wordCount(nCells);
+    }
+
+    public boolean eliminate() {
+        // Depends on all of the candidates
+        if (!isAnySymbolChanged()) return false;
+
+        buildCatalog();
+
+        boolean updated = false;
+        if (findXZ()) updated = true;
+        if (findXYWings()) updated = true;
+        return updated;
+    }
+
+    private void buildCatalog() {
+        catalog.clear();
+        setsBySymbol = new ArrayList<>();
+        for (int s = 0; s < myPuzzle.getSymbolCodeRange(); s++) setsBySymbol.add(new ArrayList<>());
+        symbolCells = new long[myPuzzle.getSymbolCodeRange()][nWords];
+        for (int i = 0; i < nCells; i++) {
+            if (myPuzzle.isOccupied(i)) continue;
+            int mask = candidates.get(i);
+            for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+                symbolCells[s][i >> 6] |= 1L << i;
+            }
+        }
+
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        for (int g = 0; g < groups.length; g++) {
+            int[] open = Arrays.stream(groups[g].getCellIndexes()).filter((i) -> !myPuzzle.isOccupied(i)).toArray();
+            int maxSize = Math.min(MAX_SET_SIZE, open.length - 1);
+            if (maxSize < 1) continue;
+            findSets(g, open, new int[maxSize], 0, 0, 0);
+        }
+        for (Als als : catalog) {
+            for (int s = CandidateGrid.firstSymbol(als.mask); s >= 0; s = CandidateGrid.nextSymbol(als.mask, s)) {
+                setsBySymbol.get(s).add(als);
+            }
+        }
+    }
+
+    private void findSets(int groupIndex, int[] open, int[] chosen, int size, int from, int union) {
+        if (size > 0 && CandidateGrid.popcount(union) == size + 1 && !isInEarlierGroup(groupIndex, chosen, size)) {
+            catalog.add(new Als(Arrays.copyOf(chosen, size), union));
+        }
+        if (size == chosen.length) return;
+        for (int k = from; k < open.length; k++) {
+            int newUnion = union | candidates.get(open[k]);
+            if (CandidateGrid.popcount(newUnion) > chosen.length + 1) continue;
+            chosen[size] = open[k];
+            findSets(groupIndex, open, chosen, size + 1, k + 1, newUnion);
+        }
+    }
+
+    // Sets in more than one group (like a row and a box) are only taken once
+    private boolean isInEarlierGroup(int groupIndex, int[] chosen, int size) {
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        for (int g : myPuzzle.getTopology().getBuddyGroupIndexes(chosen[0])) {
+            if (g >= groupIndex) continue;
+            boolean isInGroup = true;
+            for (int k = 1; k < size && isInGroup; k++) {
+                isInGroup = groups[g].isInGroup(chosen[k]);
+            }
+            if (isInGroup) return true;
+        }
+        return false;
+    }
+
+    private boolean findXZ() {
+        boolean updated = false;
+        for (int x = 1; x < myPuzzle.getSymbolCodeRange(); x++) {
+            List<Als> sets = setsBySymbol.get(x);
+            for (int a = 0; a < sets.size(); a++) {
+                Als setA = sets.get(a);
+                for (int b = a + 1; b < sets.size(); b++) {
+                    Als setB = sets.get(b);
+                    if (setA.overlaps(setB) || !setA.isRestrictedCommon(setB, x)) continue;
+                    setA.linked.add(setB);
+                    setA.linkSymbols.add(x);
+                    setB.linked.add(setA);
+                    setB.linkSymbols.add(x);
+
+                    int common = setA.mask & setB.mask & ~CandidateGrid.bit(x);
+                    for (int z = CandidateGrid.firstSymbol(common); z >= 0; z = CandidateGrid.nextSymbol(common, z)) {
+                        if (removeSeenByBoth(setA, setB, null, z, CandidateGrid.bit(x))) updated = true;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private boolean findXYWings() {
+        boolean updated = false;
+        for (Als pivot : catalog) {
+            for (int a = 0; a < pivot.linked.size(); a++) {
+                for (int b = a + 1; b < pivot.linked.size(); b++) {
+                    int x = pivot.linkSymbols.get(a);
+                    int y = pivot.linkSymbols.get(b);
+                    if (x == y) continue;
+                    Als setA = pivot.linked.get(a);
+                    Als setB = pivot.linked.get(b);
+                    if (setA == setB || setA.overlaps(setB)) continue;
+
+                    int links = CandidateGrid.bit(x) | CandidateGrid.bit(y);
+                    int common = setA.mask & setB.mask & ~links;
+                    for (int z = CandidateGrid.firstSymbol(common); z >= 0; z = CandidateGrid.nextSymbol(common, z)) {
+                        if (removeSeenByBoth(setA, setB, pivot, z, links)) updated = true;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    // z is in one of the sets, so not in cells that see all z's of both
+    private boolean removeSeenByBoth(Als setA, Als setB, Als pivot, int z, int links) {
+        Set<Coord> removedFrom = null;
+        for (int w = 0; w < nWords; w++) {
+            for (long m = setA.seenBy[z][w] & setB.seenBy[z][w] & symbolCells[z][w]; m != 0; m &= m - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                if (!candidates.contains(i, z)) continue;
+                if (removedFrom == null) removedFrom = new TreeSet<>();
+                removedFrom.add(myPuzzle.getAllCells()[i]);
+            }
+        }
+        if (removedFrom == null) return false;
+
+        EliminationLog.Reason reason = null;
+        if (isExplaining()) {
+            Set<Coord> cellsA = setA.getCoords();
+            Set<Coord> cellsB = setB.getCoords();
+            Set<Coord> pivotCells = pivot == null ? null : pivot.getCoords();
+            Set<String> linkSymbols = CandidateGrid.toSymbols(myPuzzle, links, new TreeSet<>());
+            reason = (coord, removed) -> new AlmostLockedSetEliminationReason(myPuzzle.symbolCodeToSymbol(z), coord,
+                    cellsA, cellsB, pivotCells, linkSymbols);
+        }
+        return removePossibility(z, removedFrom, reason);
+    }
+}
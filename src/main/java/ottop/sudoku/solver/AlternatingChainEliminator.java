@@ -0,0 +1,402 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.GroupIntersection;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.explain.AlternatingChainEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+
+// Alternating Inference Chains (AIC).
+//
+// The nodes of a chain are a symbol in a cell, or a symbol in the cells where two
+// groups overlap (a group node, true when the symbol is in one of these cells).
+// Two nodes are strongly linked when they cannot both be false: the two candidates
+// of a cell with only two, or the only two places of a symbol in a group. They are
+// weakly linked when they cannot both be true: two candidates of the same cell, or
+// the same symbol in cells that see each other.
+//
+// A chain that starts and ends with a strong link and alternates has one of its
+// ends true. So a candidate that conflicts with both ends can be removed: the
+// symbol from the cells that see both ends, the symbol of one end from the cell of
+// the other when these see each other, or all other candidates from a cell when
+// the ends are both in it. A chain that ends where it started makes that node true.
+//
+// The links are put in flat adjacency arrays once per round. Chains are found
+// breadth first from every node with a bitset of the visited (node, true/false)
+// states, so each elimination comes with the shortest chain.
+
+public class AlternatingChainEliminator extends Eliminator {
+    private final PeerTable peerTable;
+    private final int nCells;
+    private final int nWords;
+    private final int range;
+
+    // Of the current round. Nodes below nCells * range are a symbol in a cell
+    // (cell index * range + symbol code), the ones above are group nodes.
+    private long[][] symbolCells; // cells by symbol code
+    private int nNodes;
+    private int[] groupNodeSymbols;
+    private long[][] groupNodeCells;
+    private long[][] groupNodeSeen; // cells that see all cells of the group node
+    private int[] strongStart; // links of node n are from start[n] to start[n + 1]
+    private int[] strongTargets;
+    private int[] weakStart;
+    private int[] weakTargets;
+
+    // Links are collected as pairs first, then sorted into the adjacency arrays
+    private static class Links {
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int size = 0;
+
+        void add(int a, int b) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, 2 * size);
+                to = Arrays.copyOf(to, 2 * size);
+            }
+            from[size] = a;
+            to[size] = b;
+            size++;
+        }
+
+        // Returns the start indexes and the targets
+        int[][] toAdjacency(int nNodes) {
+            int[] start = new int[nNodes + 1];
+            for (int k = 0; k < size; k++) start[from[k] + 1]++;
+            for (int n = 0; n < nNodes; n++) start[n + 1] += start[n];
+            int[] next = Arrays.copyOf(start, nNodes);
+            int[] targets = new int[size];
+            for (int k = 0; k < size; k++) targets[next[from[k]]++] = to[k];
+            return new int[][]{start, targets};
+        }
+    }
+
+    AlternatingChainEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.peerTable = myPuzzle.getTopology().getPeerTable();
+        this.nCells = myPuzzle.getAllCells().length;
+        this.nWords = PeerTable.wordCount(nCells);
+        this.range = myPuzzle.getSymbolCodeRange();
+    }
+
+    public boolean eliminate() {
+        // Depends on all of the candidates
+        if (!isAnySymbolChanged()) return false;
+
+        buildGraph();
+        return findChains();
+    }
+
+    private void buildGraph() {
+        symbolCells = new long[range][nWords];
+        for (int i = 0; i < nCells; i++) {
+            if (myPuzzle.isOccupied(i)) continue;
+            int mask = candidates.get(i);
+            for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+                set(symbolCells[s], i);
+            }
+        }
+        buildGroupNodes();
+        nNodes = nCells * range + groupNodeSymbols.length;
+
+        Links strong = new Links();
+        Links weak = new Links();
+
+        // Candidates of the same cell
+        for (int i = 0; i < nCells; i++) {
+            if (myPuzzle.isOccupied(i)) continue;
+            int mask = candidates.get(i);
+            boolean isBivalue = CandidateGrid.popcount(mask) == 2;
+            for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+                for (int t = CandidateGrid.firstSymbol(mask); t >= 0; t = CandidateGrid.nextSymbol(mask, t)) {
+                    if (t == s) continue;
+                    weak.add(cellNode(i, s), cellNode(i, t));
+                    if (isBivalue) strong.add(cellNode(i, s), cellNode(i, t));
+                }
+            }
+        }
+
+        // The same symbol in cells that see each other
+        for (int s = 1; s < range; s++) {
+            for (int w = 0; w < nWords; w++) {
+                for (long m = symbolCells[s][w]; m != 0; m &= m - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                    long[] peers = peerTable.getPeerMask(i);
+                    for (int v = 0; v < nWords; v++) {
+                        for (long n = peers[v] & symbolCells[s][v]; n != 0; n &= n - 1) {
+                            weak.add(cellNode(i, s), cellNode((v << 6) + Long.numberOfTrailingZeros(n), s));
+                        }
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < groupNodeSymbols.length; k++) {
+            int s = groupNodeSymbols[k];
+            long[] seen = groupNodeSeen[k];
+            for (int w = 0; w < nWords; w++) {
+                for (long m = seen[w] & symbolCells[s][w]; m != 0; m &= m - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                    weak.add(groupNode(k), cellNode(i, s));
+                    weak.add(cellNode(i, s), groupNode(k));
+                }
+            }
+            for (int k2 = 0; k2 < groupNodeSymbols.length; k2++) {
+                if (k2 != k && groupNodeSymbols[k2] == s && isSubset(groupNodeCells[k2], seen)) {
+                    weak.add(groupNode(k), groupNode(k2));
+                }
+            }
+        }
+
+        // The only places of a symbol in a group, as two cells, a cell and a group
+        // node, or two group nodes
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        for (int g = 0; g < groups.length; g++) {
+            if (groups[g].getGroupSize() != range - 1) continue;
+            int[] cellIndexes = groups[g].getCellIndexes();
+            for (int s = 1; s < range; s++) {
+                int positions = candidates.getPositions(g, s);
+                int nPositions = Integer.bitCount(positions);
+                if (nPositions < 2) continue;
+                if (nPositions == 2) {
+                    int end1 = cellIndexes[Integer.numberOfTrailingZeros(positions)];
+                    int end2 = cellIndexes[31 - Integer.numberOfLeadingZeros(positions)];
+                    strong.add(cellNode(end1, s), cellNode(end2, s));
+                    strong.add(cellNode(end2, s), cellNode(end1, s));
+                }
+                long[] places = new long[nWords];
+                for (int p = positions; p != 0; p &= p - 1) set(places, cellIndexes[Integer.numberOfTrailingZeros(p)]);
+                for (int k = 0; k < groupNodeSymbols.length; k++) {
+                    if (groupNodeSymbols[k] != s || !isSubset(groupNodeCells[k], places)) continue;
+                    long[] rest = new long[nWords];
+                    int nRest = 0;
+                    for (int w = 0; w < nWords; w++) {
+                        rest[w] = places[w] & ~groupNodeCells[k][w];
+                        nRest += Long.bitCount(rest[w]);
+                    }
+                    if (nRest == 1) {
+                        int i = firstCell(rest);
+                        strong.add(groupNode(k), cellNode(i, s));
+                        strong.add(cellNode(i, s), groupNode(k));
+                    } else if (nRest > 1) {
+                        for (int k2 = 0; k2 < groupNodeSymbols.length; k2++) {
+                            if (groupNodeSymbols[k2] == s && Arrays.equals(groupNodeCells[k2], rest)) {
+                                strong.add(groupNode(k), groupNode(k2));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        int[][] adjacency = strong.toAdjacency(nNodes);
+        strongStart = adjacency[0];
+        strongTargets = adjacency[1];
+        adjacency = weak.toAdjacency(nNodes);
+        weakStart = adjacency[0];
+        weakTargets = adjacency[1];
+    }
+
+    // A symbol in two or more of the cells where two groups overlap, like a
+    // box and a row
+    private void buildGroupNodes() {
+        List<Integer> symbols = new ArrayList<>();
+        List<long[]> cells = new ArrayList<>();
+        for (GroupIntersection intersection : myPuzzle.getTopology().getIntersections()) {
+            for (int s = 1; s < range; s++) {
+                long[] nodeCells = new long[nWords];
+                int n = 0;
+                for (int i : intersection.getCellIndexes()) {
+                    if (!isSet(symbolCells[s], i)) continue;
+                    set(nodeCells, i);
+                    n++;
+                }
+                if (n < 2 || isKnownGroupNode(symbols, cells, s, nodeCells)) continue;
+                symbols.add(s);
+                cells.add(nodeCells);
+            }
+        }
+        groupNodeSymbols = symbols.stream().mapToInt(Integer::intValue).toArray();
+        groupNodeCells = cells.toArray(new long[0][]);
+        groupNodeSeen = new long[groupNodeCells.length][];
+        for (int k = 0; k < groupNodeCells.length; k++) {
+            groupNodeSeen[k] = new long[nWords];
+            Arrays.fill(groupNodeSeen[k], -1L);
+            for (int w = 0; w < nWords; w++) {
+                for (long m = groupNodeCells[k][w]; m != 0; m &= m - 1) {
+                    long[] peers = peerTable.getPeerMask((w << 6) + Long.numberOfTrailingZeros(m));
+                    for (int v = 0; v < nWords; v++) groupNodeSeen[k][v] &= peers[v];
+                }
+            }
+        }
+    }
+
+    private static boolean isKnownGroupNode(List<Integer> symbols, List<long[]> cells, int s, long[] nodeCells) {
+        for (int k = 0; k < symbols.size(); k++) {
+            if (symbols.get(k) == s && Arrays.equals(cells.get(k), nodeCells)) return true;
+        }
+        return false;
+    }
+
+    // Breadth first from every node with a strong link, assuming it is false. A
+    // state is a node and whether it is true (1) or false (0).
+    private boolean findChains() {
+        boolean updated = false;
+        int nStates = 2 * nNodes;
+        long[] visited = new long[PeerTable.wordCount(nStates)];
+        int[] parent = new int[nStates];
+        int[] queue = new int[nStates];
+        for (int start = 0; start < nNodes; start++) {
+            if (strongStart[start] == strongStart[start + 1]) continue;
+
+            Arrays.fill(visited, 0L);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = 2 * start;
+            set(visited, 2 * start);
+            parent[2 * start] = -1;
+            while (head < tail) {
+                int state = queue[head++];
+                int node = state >> 1;
+                if ((state & 1) == 0) {
+                    // False, so what it is strongly linked to is true
+                    for (int k = strongStart[node]; k < strongStart[node + 1]; k++) {
+                        int next = 2 * strongTargets[k] + 1;
+                        if (isSet(visited, next)) continue;
+                        set(visited, next);
+                        parent[next] = state;
+                        queue[tail++] = next;
+
+                        // At least strong, weak, strong. Shorter is done by the simpler techniques.
+                        if (strongTargets[k] >= start && parent[state] >= 0) {
+                            if (removeConflicts(start, strongTargets[k], next, parent)) updated = true;
+                        }
+                    }
+                } else {
+                    // True, so what it is weakly linked to is false
+                    for (int k = weakStart[node]; k < weakStart[node + 1]; k++) {
+                        int next = 2 * weakTargets[k];
+                        if (isSet(visited, next)) continue;
+                        set(visited, next);
+                        parent[next] = state;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    // One of the two ends of the chain is true
+    private boolean removeConflicts(int first, int last, int lastState, int[] parent) {
+        int symbol1 = getSymbol(first);
+        int symbol2 = getSymbol(last);
+        long[] seen1 = getSeen(first);
+        long[] seen2 = getSeen(last);
+        Coord[] allCells = myPuzzle.getAllCells();
+        EliminationLog.Reason reason = null;
+        boolean updated = false;
+
+        if (symbol1 == symbol2) {
+            Set<Coord> removedFrom = new TreeSet<>();
+            for (int w = 0; w < nWords; w++) {
+                for (long m = seen1[w] & seen2[w] & symbolCells[symbol1][w]; m != 0; m &= m - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                    if (candidates.contains(i, symbol1)) removedFrom.add(allCells[i]);
+                }
+            }
+            if (!removedFrom.isEmpty()) {
+                reason = getReason(lastState, parent);
+                if (removePossibility(symbol1, removedFrom, reason)) updated = true;
+            }
+        } else {
+            // The symbol of one end from the cell of the other
+            int[][] ends = {{first, last, symbol1}, {last, first, symbol2}};
+            for (int[] end : ends) {
+                if (end[1] >= nCells * range) continue;
+                int i = end[1] / range;
+                if (!isSet(getSeen(end[0]), i) || !candidates.contains(i, end[2])) continue;
+                if (reason == null) reason = getReason(lastState, parent);
+                if (removePossibilities(CandidateGrid.bit(end[2]), allCells[i], reason)) updated = true;
+            }
+        }
+
+        // Both ends in the same cell, that leaves no room for others
+        if (first < nCells * range && last < nCells * range && first / range == last / range) {
+            int i = first / range;
+            int others = candidates.get(i) & ~CandidateGrid.bit(symbol1) & ~CandidateGrid.bit(symbol2);
+            if (others != 0) {
+                if (reason == null) reason = getReason(lastState, parent);
+                if (removePossibilities(others, allCells[i], reason)) updated = true;
+            }
+        }
+        return updated;
+    }
+
+    private EliminationLog.Reason getReason(int lastState, int[] parent) {
+        if (!isExplaining()) return null;
+        List<String> nodeSymbols = new ArrayList<>();
+        List<Set<Coord>> nodeCells = new ArrayList<>();
+        for (int state = lastState; state >= 0; state = parent[state]) {
+            int node = state >> 1;
+            nodeSymbols.add(0, myPuzzle.symbolCodeToSymbol(getSymbol(node)));
+            nodeCells.add(0, toCoords(node));
+        }
+        return (coord, removed) -> new AlternatingChainEliminationReason(
+                CandidateGrid.toSymbols(myPuzzle, removed, new TreeSet<>()), coord, nodeSymbols, nodeCells);
+    }
+
+    private int cellNode(int cellIndex, int symbolCode) {
+        return cellIndex * range + symbolCode;
+    }
+
+    private int groupNode(int k) {
+        return nCells * range + k;
+    }
+
+    private int getSymbol(int node) {
+        return node < nCells * range ? node % range : groupNodeSymbols[node - nCells * range];
+    }
+
+    private long[] getSeen(int node) {
+        return node < nCells * range ? peerTable.getPeerMask(node / range) : groupNodeSeen[node - nCells * range];
+    }
+
+    private Set<Coord> toCoords(int node) {
+        Coord[] allCells = myPuzzle.getAllCells();
+        Set<Coord> coords = new TreeSet<>();
+        if (node < nCells * range) {
+            coords.add(allCells[node / range]);
+        } else {
+            long[] cells = groupNodeCells[node - nCells * range];
+            for (int w = 0; w < nWords; w++) {
+                for (long m = cells[w]; m != 0; m &= m - 1) coords.add(allCells[(w << 6) + Long.numberOfTrailingZeros(m)]);
+            }
+        }
+        return coords;
+    }
+
+    private boolean isSubset(long[] cells, long[] of) {
+        for (int w = 0; w < nWords; w++) {
+            if ((cells[w] & ~of[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    private int firstCell(long[] cells) {
+        for (int w = 0; w < nWords; w++) {
+            if (cells[w] != 0) return (w << 6) + Long.numberOfTrailingZeros(cells[w]);
+        }
+        return -1;
+    }
+
+    private static boolean isSet(long[] bits, int i) {
+        return (bits[i >> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >> 6] |= 1L << i;
+    }
+}
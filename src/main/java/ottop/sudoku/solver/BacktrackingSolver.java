@@ -0,0 +1,344 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.GroupIntersection;
+import ottop.sudoku.board.PuzzleTopology;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Brute force solver, along the lines of http://norvig.com/sudoku.html but on
+// int bitmasks (bit 'symbolCode' set when the symbol is possible, see
+// CandidateGrid) over the groups of the puzzle topology.
+//
+// Placing a symbol removes it from all peers. Cells with one candidate left
+// (naked singles) and symbols with one place left in a group (hidden singles)
+// are placed until there are none left, with locked candidates (the box/line
+// intersections) to get unstuck. Then the cell with the fewest candidates is
+// tried symbol by symbol. Every change of a mask is put on an
+// undo trail so a failed guess is undone by popping the trail. Nothing is
+// allocated during the search, all arrays are created up front.
+//
+// Unlike SudokuSolver this does not explain anything, but it always finds a
+// solution if there is one.
+
+public class BacktrackingSolver {
+    private final PuzzleTopology topology;
+    private final int symbolCodeRange;
+    private final int allSymbols;
+
+    // From the topology, by cell index / group index
+    private final int[][] peers;
+    private final int[][] groupCells;
+    private final boolean[] hasAllSymbols; // group must contain every symbol
+    private final int[][] intersectionCells; // cells two groups share
+    private final int[][] intersectionRest; // per intersection the rest of the first, then of the second group
+
+    // Bit 0 (the code for an empty cell) marks a cell as placed
+    private static final int PLACED = 1;
+
+    private final int[] candidates;
+    private final int[] trail; // pairs of cell index and its previous mask
+    private int trailSize = 0;
+    private final int[] singles; // open cells that are down to one candidate
+    private int singlesSize = 0;
+    private boolean isLoaded = false;
+    private long nodeCount = 0;
+
+    private final int[] solution; // masks of the first solution found
+    private int nSolutions = 0;
+    private int solutionLimit = 1;
+
+    public BacktrackingSolver(ISudoku p) {
+        this.topology = p.getTopology();
+        this.symbolCodeRange = p.getSymbolCodeRange();
+        this.allSymbols = CandidateGrid.allSymbols(symbolCodeRange);
+
+        int nCells = topology.getCellCount();
+        AbstractGroup[] groups = topology.getGroups();
+        peers = new int[nCells][];
+        groupCells = new int[groups.length][];
+        hasAllSymbols = new boolean[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            groupCells[g] = groups[g].getCellIndexes();
+            hasAllSymbols[g] = (groups[g].getGroupSize() == symbolCodeRange - 1);
+        }
+        for (int i = 0; i < nCells; i++) {
+            peers[i] = topology.getPeerTable().getPeers(i);
+        }
+
+        List<GroupIntersection> intersections = topology.getIntersections();
+        intersectionCells = new int[intersections.size()][];
+        intersectionRest = new int[2 * intersections.size()][];
+        for (int k = 0; k < intersections.size(); k++) {
+            GroupIntersection intersection = intersections.get(k);
+            intersectionCells[k] = intersection.getCellIndexes();
+            for (int j = 0; j < 2; j++) {
+                AbstractGroup g = intersection.getIntersectionGroup(j);
+                AbstractGroup other = intersection.getIntersectionGroup(1 - j);
+                intersectionRest[2 * k + j] = Arrays.stream(g.getCellIndexes()).filter((c) -> !other.isInGroup(c)).toArray();
+            }
+        }
+
+        // Along one path of the search masks only shrink, so every cell changes
+        // at most once per symbol plus once when placed
+        candidates = new int[nCells];
+        solution = new int[nCells];
+        trail = new int[2 * nCells * (symbolCodeRange + 1)];
+        singles = new int[nCells * symbolCodeRange];
+
+        load(p);
+    }
+
+    public boolean isForTopologyOf(ISudoku p) {
+        return p.getTopology() == topology && p.getSymbolCodeRange() == symbolCodeRange;
+    }
+
+    // Start over with (another) puzzle of the same topology. Returns false if
+    // the symbols on the board already contradict each other.
+    public boolean load(ISudoku p) {
+        if (!isForTopologyOf(p)) {
+            throw new IllegalArgumentException("Puzzle " + p.getName() + " has a different topology");
+        }
+        trailSize = 0;
+        nodeCount = 0;
+        nSolutions = 0;
+        Arrays.fill(candidates, allSymbols);
+
+        isLoaded = true;
+        for (int i = 0; i < candidates.length && isLoaded; i++) {
+            int symbolCode = p.getSymbolCodeAtCell(i);
+            if (symbolCode != 0) {
+                isLoaded = CandidateGrid.hasSymbol(candidates[i], symbolCode) && place(i, symbolCode);
+            }
+        }
+        trailSize = 0; // no need to ever undo the givens
+        return isLoaded;
+    }
+
+    // Finds the first solution. The solution can then be retrieved with getSolution.
+    public boolean solve() {
+        return countSolutions(1) > 0;
+    }
+
+    // Counts the solutions of the loaded puzzle but stops as soon as 'limit' is
+    // reached. The first solution can be retrieved with getSolution.
+    public int countSolutions(int limit) {
+        nSolutions = 0;
+        nodeCount = 0;
+        solutionLimit = limit;
+        if (isLoaded && limit > 0) {
+            search();
+            undo(0); // back to just the givens, so this can be called again
+        }
+        return nSolutions;
+    }
+
+    // Number of guesses made during the last solve
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    // Symbol code at the cell in the first solution, 0 if there is none
+    public int getSymbolCodeAtCell(int cellIndex) {
+        if (nSolutions == 0) return 0;
+        return CandidateGrid.lowestSymbol(solution[cellIndex] & ~PLACED);
+    }
+
+    // The symbols of all cells that were empty in the given puzzle
+    public Map<Coord, String> getSolution(ISudoku p) {
+        Map<Coord, String> result = new TreeMap<>();
+        Coord[] allCells = topology.getAllCells();
+        for (int i = 0; i < allCells.length; i++) {
+            if (!p.isOccupied(i)) {
+                int symbolCode = getSymbolCodeAtCell(i);
+                if (symbolCode != 0) {
+                    result.put(allCells[i], p.symbolCodeToSymbol(symbolCode));
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean search() {
+        boolean isConsistent = propagate();
+        singlesSize = 0;
+        if (!isConsistent) return false;
+
+        // Minimum remaining values: guess at the open cell with the fewest candidates
+        int bestCell = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            int mask = candidates[i];
+            if ((mask & PLACED) == 0) {
+                int size = CandidateGrid.popcount(mask);
+                if (size < bestSize) {
+                    bestCell = i;
+                    bestSize = size;
+                    if (size == 2) break;
+                }
+            }
+        }
+        if (bestCell < 0) { // all cells placed
+            if (nSolutions++ == 0) {
+                System.arraycopy(candidates, 0, solution, 0, candidates.length);
+            }
+            return nSolutions >= solutionLimit;
+        }
+
+        int mask = candidates[bestCell];
+        int mark = trailSize;
+        for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+            nodeCount++;
+            if (place(bestCell, s) && search()) {
+                return true;
+            }
+            undo(mark);
+        }
+        return false;
+    }
+
+    // Places the symbol and removes it from all peers
+    private boolean place(int cell, int symbolCode) {
+        int bit = CandidateGrid.bit(symbolCode);
+        save(cell);
+        candidates[cell] = bit | PLACED;
+        for (int peer : peers[cell]) {
+            int mask = candidates[peer];
+            if ((mask & bit) != 0) {
+                save(peer);
+                mask &= ~bit;
+                candidates[peer] = mask;
+                if ((mask & ~PLACED) == 0) return false; // nothing left, or the same symbol placed twice
+                if ((mask & (mask - 1)) == 0) singles[singlesSize++] = peer;
+            }
+        }
+        return true;
+    }
+
+    // Places naked and hidden singles until there are none left
+    private boolean propagate() {
+        boolean hasPlaced = true;
+        while (hasPlaced) {
+            hasPlaced = false;
+
+            // Naked singles: open cells that got down to one candidate
+            while (singlesSize > 0) {
+                int i = singles[--singlesSize];
+                int mask = candidates[i];
+                if ((mask & PLACED) == 0 && (mask & (mask - 1)) == 0) {
+                    if (!place(i, CandidateGrid.lowestSymbol(mask))) return false;
+                }
+            }
+
+            // Hidden singles: symbols with just one open cell in a group
+            for (int g = 0; g < groupCells.length; g++) {
+                if (!hasAllSymbols[g]) continue;
+                int[] cells = groupCells[g];
+                int once = 0;
+                int twice = 0;
+                int placed = 0;
+                for (int c : cells) {
+                    int mask = candidates[c];
+                    if ((mask & PLACED) != 0) {
+                        placed |= mask;
+                    } else {
+                        twice |= once & mask;
+                        once |= mask;
+                    }
+                }
+                if (((once | placed) & allSymbols) != allSymbols) return false; // a symbol has no place left
+                int hidden = once & ~twice;
+                if (hidden != 0) {
+                    for (int c : cells) {
+                        int mask = candidates[c];
+                        int h = mask & hidden;
+                        if ((mask & PLACED) == 0 && h != 0) {
+                            if ((h & (h - 1)) != 0) return false; // two symbols that both must go here
+                            if (!place(c, CandidateGrid.lowestSymbol(h))) return false;
+                            hasPlaced = true;
+                        }
+                    }
+                }
+            }
+
+            // Stuck on singles: see if locked candidates remove anything, which
+            // is cheaper than guessing
+            if (!hasPlaced) {
+                int removed = eliminateLockedCandidates();
+                if (removed < 0) return false;
+                hasPlaced = removed > 0;
+            }
+        }
+        return true;
+    }
+
+    // When a symbol of one group can only be in its intersection with another
+    // group, it can be removed from the rest of that other group.
+    // Returns the number of cells changed, -1 if a cell ran out of candidates.
+    private int eliminateLockedCandidates() {
+        int changed = 0;
+        for (int k = 0; k < intersectionCells.length; k++) {
+            int inside = getOpenCandidates(intersectionCells[k]);
+            if (inside == 0) continue;
+            int restA = getOpenCandidates(intersectionRest[2 * k]);
+            int restB = getOpenCandidates(intersectionRest[2 * k + 1]);
+            int lockedInA = inside & ~restA & restB;
+            int lockedInB = inside & ~restB & restA;
+            if (lockedInA != 0) {
+                int n = removeCandidates(intersectionRest[2 * k + 1], lockedInA);
+                if (n < 0) return -1;
+                changed += n;
+            }
+            if (lockedInB != 0) {
+                int n = removeCandidates(intersectionRest[2 * k], lockedInB);
+                if (n < 0) return -1;
+                changed += n;
+            }
+        }
+        return changed;
+    }
+
+    private int getOpenCandidates(int[] cells) {
+        int mask = 0;
+        for (int c : cells) {
+            int m = candidates[c];
+            if ((m & PLACED) == 0) mask |= m;
+        }
+        return mask;
+    }
+
+    private int removeCandidates(int[] cells, int symbols) {
+        int changed = 0;
+        for (int c : cells) {
+            int mask = candidates[c];
+            if ((mask & PLACED) == 0 && (mask & symbols) != 0) {
+                save(c);
+                mask &= ~symbols;
+                candidates[c] = mask;
+                if (mask == 0) return -1;
+                if ((mask & (mask - 1)) == 0) singles[singlesSize++] = c;
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void save(int cell) {
+        trail[trailSize++] = cell;
+        trail[trailSize++] = candidates[cell];
+    }
+
+    private void undo(int mark) {
+        singlesSize = 0;
+        while (trailSize > mark) {
+            int mask = trail[--trailSize];
+            int cell = trail[--trailSize];
+            candidates[cell] = mask;
+        }
+    }
+}
@@ -10,50 +10,39 @@ import java.util.*;
 
 public class BasicEliminationEliminator extends Eliminator {
 
-    public BasicEliminationEliminator(ISudoku myPuzzle, Map<Coord, Set<Integer>> candidatesPerCell, Map<Coord, List<Explanation>> removalReasons) {
-        super(myPuzzle, candidatesPerCell, removalReasons);
+    public BasicEliminationEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
     }
 
     // This is not just eliminating, it really resets the whole set of candidates
     public boolean eliminate() {
         boolean hasEliminated = false;
-        candidatesPerCell.clear();
 
         // Start by assigning all possibilities to all cells
-        Set<Integer> allPossibilities = new TreeSet<>();
-        int symbolCodeRange = myPuzzle.getSymbolCodeRange();
-        for (int symbolCode = 1; symbolCode < symbolCodeRange; symbolCode++) {
-            allPossibilities.add(symbolCode);
-        }
-        for (Coord c: myPuzzle.getAllCells()) {
-            if (myPuzzle.isOccupied(c)) {
-                candidatesPerCell.put(c, new TreeSet<>());
+        int allPossibilities = CandidateGrid.allSymbols(myPuzzle.getSymbolCodeRange());
+        Coord[] allCells = myPuzzle.getAllCells();
+        for (int i = 0; i < allCells.length; i++) {
+            if (myPuzzle.isOccupied(i)) {
+                candidates.set(i, 0);
             } else {
-                candidatesPerCell.put(c, new TreeSet<>(allPossibilities));
+                candidates.set(i, allPossibilities);
             }
         }
 
         // Eliminate per group
         for (AbstractGroup g: myPuzzle.getGroups()) {
-            Set<Coord> groupCells = g.getCoords();
-            Set<Integer> groupSymbolCodes = new TreeSet<>();
-            for (Coord c: groupCells) {
-                groupSymbolCodes.add(myPuzzle.getSymbolCodeAtCoordinates(c));
+            // TODO: relatively expensive to do this over & over again
+            EliminationLog.Reason reason = !isExplaining() ? null : (c, removedCodes) ->
+                    new SimpleEliminationReason(CandidateGrid.toSymbols(myPuzzle, removedCodes, new TreeSet<>()), c, g);
+            int[] groupCells = g.getCellIndexes();
+            int groupSymbolCodes = 0;
+            for (int i: groupCells) {
+                groupSymbolCodes |= CandidateGrid.bit(myPuzzle.getSymbolCodeAtCell(i));
             }
-            for (Coord c: groupCells) {
-                candidatesPerCell.get(c).remove(myPuzzle.getSymbolCodeAtCoordinates(c));
-
-                Set<Integer> removedCodes = new TreeSet<>(groupSymbolCodes);
-                removedCodes.retainAll(candidatesPerCell.get(c)); // TODO: this correct?
-                if (removedCodes.size() > 0) {
-                    candidatesPerCell.get(c).removeAll(removedCodes);
-                    // TODO: relatively expensive to do this over & over again
-                    Set<String> removedSymbols = new TreeSet<>();
-                    for (int x: removedCodes) {
-                        removedSymbols.add(myPuzzle.symbolCodeToSymbol(x));
-                    }
-                    recordEliminationReason(c,
-                            new SimpleEliminationReason(removedSymbols, c, g));
+            for (int i: groupCells) {
+                int removedCodes = candidates.removeAll(i, groupSymbolCodes);
+                if (removedCodes != 0) {
+                    recordEliminationReason(i, removedCodes, reason);
                     hasEliminated = true;
                 }
             }
@@ -61,29 +50,27 @@ public class BasicEliminationEliminator extends Eliminator {
         return hasEliminated;
     }
 
-    public boolean eliminate2() {
+    // Incremental version of eliminate() for when a symbol has just been placed
+    // at the given cell: only the peers of that cell are affected. Other
+    // eliminations already in the candidates are left alone.
+    public boolean eliminatePlacement(int cellIndex) {
         boolean hasEliminated = false;
-        candidatesPerCell.clear();
-        for (Coord c : myPuzzle.getAllCells()) {
-            int symbolCodeRange = myPuzzle.getSymbolCodeRange();
-            Set<Integer> possibilitiesAtCell = new TreeSet<>();
-            for (int symbolCode = 1; symbolCode < symbolCodeRange; symbolCode++) {
-                boolean isPossible = true;
-                for (AbstractGroup g : myPuzzle.getBuddyGroups(c)) {
+        int symbolCode = myPuzzle.getSymbolCodeAtCell(cellIndex);
 
-                    if (!g.isPossibility(symbolCode, c)) {
-                        isPossible = false;
-                        hasEliminated = true;
-                        // TODO: combining these later on is expensive
-                        recordEliminationReason(c,
-                                new SimpleEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), c, g));
-                        break;
-                    }
+        candidates.set(cellIndex, 0);
+        if (symbolCode == 0) return false;
+
+        // Groups in the same order as eliminate() so the same group gets the credit
+        for (AbstractGroup g: myPuzzle.getBuddyGroups(cellIndex)) {
+            EliminationLog.Reason reason = !isExplaining() ? null : (c, removedCodes) ->
+                    new SimpleEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), c, g);
+            for (int i: g.getCellIndexes()) {
+                if (i != cellIndex && candidates.remove(i, symbolCode)) {
+                    recordEliminationReason(i, CandidateGrid.bit(symbolCode), reason);
+                    hasEliminated = true;
                 }
-                if (isPossible) possibilitiesAtCell.add(symbolCode);
             }
-            candidatesPerCell.put(c, possibilitiesAtCell);
         }
         return hasEliminated;
     }
-}
\ No newline at end of file
+}
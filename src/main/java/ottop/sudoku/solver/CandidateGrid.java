@@ -0,0 +1,284 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PuzzleTopology;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Candidates of all cells of a puzzle, kept as one int bitmask per cell.
+//
+// Bit 'symbolCode' is set when that symbol is still a candidate, so bit 0 (the
+// code for an empty cell) is never used. An int is enough for puzzles with up
+// to 30 symbols, which covers everything up to 25x25.
+//
+// Cells are addressed by their index in ISudoku.getAllCells().
+//
+// Changes are tracked per group, per symbol and per (group, symbol): every
+// change gets the next number of a change counter, and the groups of the cell
+// and the symbols that changed are stamped with it. Someone who remembers the
+// counter from before can then tell what changed since, e.g. an eliminator
+// can skip the groups it already looked at that did not change after that.
+//
+// Also kept up to date is the reverse view: per group and symbol a bitmask of
+// the positions in the group (see AbstractGroup.getPosition) where the symbol
+// is still a candidate. Hidden singles are symbols with one position left,
+// two positions give the strong links for fish and chains.
+
+public class CandidateGrid {
+    private final int[] masks;
+    private final ISudoku myPuzzle; // to map a Coord to its index
+    private final PuzzleTopology topology;
+    private final int[] positions; // group index * symbolCodeRange + symbol code to positions in the group
+
+    private final int symbolCodeRange;
+    private long changeCount = 0;
+    private final long[] groupStamps; // group index to its last change
+    private final long[] symbolStamps; // symbol code to its last change
+    private final long[] groupSymbolStamps; // group index * symbolCodeRange + symbol code to its last change
+
+    public CandidateGrid(ISudoku myPuzzle) {
+        this.masks = new int[myPuzzle.getAllCells().length];
+        this.myPuzzle = myPuzzle;
+        this.topology = myPuzzle.getTopology();
+        this.symbolCodeRange = myPuzzle.getSymbolCodeRange();
+        int nGroups = myPuzzle.getGroups().length;
+        this.positions = new int[nGroups * symbolCodeRange];
+        this.groupStamps = new long[nGroups];
+        this.symbolStamps = new long[symbolCodeRange];
+        this.groupSymbolStamps = new long[nGroups * symbolCodeRange];
+    }
+
+    private CandidateGrid(CandidateGrid other) {
+        this.masks = other.masks.clone();
+        this.myPuzzle = other.myPuzzle;
+        this.topology = other.topology;
+        this.positions = other.positions.clone();
+        this.symbolCodeRange = other.symbolCodeRange;
+        this.changeCount = other.changeCount;
+        this.groupStamps = other.groupStamps.clone();
+        this.symbolStamps = other.symbolStamps.clone();
+        this.groupSymbolStamps = other.groupSymbolStamps.clone();
+    }
+
+    public CandidateGrid copy() {
+        return new CandidateGrid(this);
+    }
+
+    public void copyFrom(CandidateGrid other) {
+        System.arraycopy(other.masks, 0, masks, 0, masks.length);
+        System.arraycopy(other.positions, 0, positions, 0, positions.length);
+        markAllChanged();
+    }
+
+    // Number of the last change, changes after this have a higher stamp
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    public long getGroupStamp(int groupIndex) {
+        return groupStamps[groupIndex];
+    }
+
+    public long getSymbolStamp(int symbolCode) {
+        return symbolStamps[symbolCode];
+    }
+
+    public long getGroupSymbolStamp(int groupIndex, int symbolCode) {
+        return groupSymbolStamps[groupIndex * symbolCodeRange + symbolCode];
+    }
+
+    // Bitmask of the positions in the group where the symbol is a candidate
+    public int getPositions(int groupIndex, int symbolCode) {
+        return positions[groupIndex * symbolCodeRange + symbolCode];
+    }
+
+    public int getPositionCount(int groupIndex, int symbolCode) {
+        return Integer.bitCount(getPositions(groupIndex, symbolCode));
+    }
+
+    // Keeps the positions and the change stamps up to date
+    private void markChanged(int cellIndex, int oldMask, int newMask, int changedSymbols) {
+        long stamp = ++changeCount;
+        int[] groupIndexes = topology.getBuddyGroupIndexes(cellIndex);
+        int[] groupPositions = topology.getBuddyGroupPositions(cellIndex);
+        int removed = oldMask & ~newMask;
+        int added = newMask & ~oldMask;
+        for (int j = 0; j < groupIndexes.length; j++) {
+            int g = groupIndexes[j];
+            groupStamps[g] = stamp;
+            int offset = g * symbolCodeRange;
+            int positionBit = 1 << groupPositions[j];
+            for (int s = firstSymbol(removed); s >= 0; s = nextSymbol(removed, s)) {
+                positions[offset + s] &= ~positionBit;
+            }
+            for (int s = firstSymbol(added); s >= 0; s = nextSymbol(added, s)) {
+                positions[offset + s] |= positionBit;
+            }
+            for (int s = firstSymbol(changedSymbols); s >= 0; s = nextSymbol(changedSymbols, s)) {
+                groupSymbolStamps[offset + s] = stamp;
+            }
+        }
+        for (int s = firstSymbol(changedSymbols); s >= 0; s = nextSymbol(changedSymbols, s)) {
+            symbolStamps[s] = stamp;
+        }
+    }
+
+    private void markAllChanged() {
+        long stamp = ++changeCount;
+        Arrays.fill(groupStamps, stamp);
+        Arrays.fill(symbolStamps, stamp);
+        Arrays.fill(groupSymbolStamps, stamp);
+    }
+
+    public int getCellCount() {
+        return masks.length;
+    }
+
+    public int indexOf(Coord c) {
+        return myPuzzle.getCellIndex(c);
+    }
+
+    public int get(int cellIndex) {
+        return masks[cellIndex];
+    }
+
+    public int get(Coord c) {
+        return masks[indexOf(c)];
+    }
+
+    // Always counts as a change, also when the mask stays the same: this is how
+    // cells get placed and then the cell itself changed
+    public void set(int cellIndex, int mask) {
+        int oldMask = masks[cellIndex];
+        masks[cellIndex] = mask;
+        markChanged(cellIndex, oldMask, mask, oldMask | mask);
+    }
+
+    public void set(Coord c, int mask) {
+        set(indexOf(c), mask);
+    }
+
+    public void fill(int mask) {
+        Arrays.fill(masks, mask);
+        Arrays.fill(positions, 0);
+        AbstractGroup[] groups = topology.getGroups();
+        for (int g = 0; g < groups.length; g++) {
+            int allPositions = (1 << groups[g].getGroupSize()) - 1;
+            for (int s = firstSymbol(mask); s >= 0; s = nextSymbol(mask, s)) {
+                positions[g * symbolCodeRange + s] = allPositions;
+            }
+        }
+        markAllChanged();
+    }
+
+    public boolean contains(int cellIndex, int symbolCode) {
+        return (masks[cellIndex] & bit(symbolCode)) != 0;
+    }
+
+    public boolean contains(Coord c, int symbolCode) {
+        return contains(indexOf(c), symbolCode);
+    }
+
+    public int size(int cellIndex) {
+        return Integer.bitCount(masks[cellIndex]);
+    }
+
+    public int size(Coord c) {
+        return size(indexOf(c));
+    }
+
+    public boolean remove(int cellIndex, int symbolCode) {
+        return removeAll(cellIndex, bit(symbolCode)) != 0;
+    }
+
+    public boolean remove(Coord c, int symbolCode) {
+        return remove(indexOf(c), symbolCode);
+    }
+
+    // Removes the symbols in 'mask' and returns the ones that actually were candidates
+    public int removeAll(int cellIndex, int mask) {
+        int removed = masks[cellIndex] & mask;
+        if (removed != 0) {
+            int oldMask = masks[cellIndex];
+            masks[cellIndex] = oldMask & ~mask;
+            markChanged(cellIndex, oldMask, masks[cellIndex], removed);
+        }
+        return removed;
+    }
+
+    public int removeAll(Coord c, int mask) {
+        return removeAll(indexOf(c), mask);
+    }
+
+    // Operations on the symbol masks themselves
+
+    public static int bit(int symbolCode) {
+        return 1 << symbolCode;
+    }
+
+    // Mask with all real symbols of a puzzle, so 1..symbolCodeRange-1
+    public static int allSymbols(int symbolCodeRange) {
+        return ((1 << symbolCodeRange) - 1) & ~1;
+    }
+
+    public static boolean hasSymbol(int mask, int symbolCode) {
+        return (mask & bit(symbolCode)) != 0;
+    }
+
+    public static int popcount(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    public static int union(int a, int b) {
+        return a | b;
+    }
+
+    public static int intersect(int a, int b) {
+        return a & b;
+    }
+
+    public static int lowestBit(int mask) {
+        return Integer.lowestOneBit(mask);
+    }
+
+    // Lowest symbol code in the mask, or -1 if empty
+    public static int lowestSymbol(int mask) {
+        return mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask);
+    }
+
+    // For iterating: for (int s = firstSymbol(m); s >= 0; s = nextSymbol(m, s)) ...
+    public static int firstSymbol(int mask) {
+        return lowestSymbol(mask);
+    }
+
+    public static int nextSymbol(int mask, int symbolCode) {
+        return lowestSymbol(mask & (-1 << (symbolCode + 1)));
+    }
+
+    public static Set<Integer> toSet(int mask) {
+        Set<Integer> result = new TreeSet<>();
+        for (int s = firstSymbol(mask); s >= 0; s = nextSymbol(mask, s)) {
+            result.add(s);
+        }
+        return result;
+    }
+
+    public static int fromSet(Set<Integer> symbolCodes) {
+        int mask = 0;
+        for (int s : symbolCodes) {
+            mask |= bit(s);
+        }
+        return mask;
+    }
+
+    public static Set<String> toSymbols(ISudoku myPuzzle, int mask, Set<String> result) {
+        for (int s = firstSymbol(mask); s >= 0; s = nextSymbol(mask, s)) {
+            result.add(myPuzzle.symbolCodeToSymbol(s));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,280 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PuzzleTopology;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Knuth's Algorithm X with Dancing Links, https://arxiv.org/abs/cs/0011047
+//
+// Solving a puzzle is an exact cover problem. Every (cell, symbol) is a row.
+// The columns are the constraints: every cell has exactly one symbol, and every
+// group has every symbol exactly once. The matrix is built from the cells and
+// groups of the topology only, so any variant works without specific code.
+// Groups with fewer cells than symbols give optional ("secondary") columns:
+// a symbol at most once.
+//
+// The links are kept in int arrays. They are built once and after every solve
+// all covers are undone again, so the same solver can be used for any number
+// of puzzles of the same topology.
+
+public class DancingLinksSolver {
+    private static final int ROOT = 0;
+
+    private final PuzzleTopology topology;
+    private final int symbolCodeRange;
+    private final int nSymbols;
+
+    // The nodes. Column headers are 1..nColumns, then the rows.
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column; // node to its column header
+    private final int[] row; // node to its row, -1 for the headers
+    private final int[] size; // column header to the number of rows in it
+    private final int[] rowFirstNode; // row to its first node
+
+    private final int[] solution; // rows chosen so far, by search depth
+    private final int[] firstSolution; // rows of the first solution found
+    private int firstSolutionSize = 0;
+    private int nSolutions = 0;
+    private int solutionLimit = 1;
+
+    public DancingLinksSolver(ISudoku p) {
+        this.topology = p.getTopology();
+        this.symbolCodeRange = p.getSymbolCodeRange();
+        this.nSymbols = symbolCodeRange - 1;
+
+        int nCells = topology.getCellCount();
+        AbstractGroup[] groups = topology.getGroups();
+        int nColumns = nCells + groups.length * nSymbols;
+        int nRows = nCells * nSymbols;
+        int nRowNodes = 0;
+        for (int i = 0; i < nCells; i++) {
+            nRowNodes += nSymbols * (1 + topology.getBuddyGroups(i).length);
+        }
+        int nNodes = 1 + nColumns + nRowNodes;
+
+        left = new int[nNodes];
+        right = new int[nNodes];
+        up = new int[nNodes];
+        down = new int[nNodes];
+        column = new int[nNodes];
+        row = new int[nNodes];
+        size = new int[nColumns + 1];
+        rowFirstNode = new int[nRows];
+        solution = new int[nCells];
+        firstSolution = new int[nCells];
+
+        // Headers. Cell columns are primary, (group, symbol) columns only when the
+        // group has room for all symbols. Secondary ones are not in the header list.
+        left[ROOT] = ROOT;
+        right[ROOT] = ROOT;
+        row[ROOT] = -1;
+        for (int c = 1; c <= nColumns; c++) {
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+            row[c] = -1;
+            boolean isPrimary = c <= nCells || groups[(c - 1 - nCells) / nSymbols].getGroupSize() >= nSymbols;
+            if (isPrimary) {
+                left[c] = left[ROOT];
+                right[c] = ROOT;
+                right[left[ROOT]] = c;
+                left[ROOT] = c;
+            } else {
+                left[c] = c;
+                right[c] = c;
+            }
+        }
+
+        // Rows
+        int[] groupIndex = new int[groups.length];
+        int node = nColumns + 1;
+        for (int cell = 0; cell < nCells; cell++) {
+            AbstractGroup[] buddyGroups = topology.getBuddyGroups(cell);
+            for (int j = 0; j < buddyGroups.length; j++) {
+                groupIndex[j] = indexOf(groups, buddyGroups[j]);
+            }
+            for (int s = 1; s <= nSymbols; s++) {
+                int r = getRow(cell, s);
+                int first = node;
+                rowFirstNode[r] = first;
+                node = addNode(node, first, r, 1 + cell);
+                for (int j = 0; j < buddyGroups.length; j++) {
+                    node = addNode(node, first, r, 1 + nCells + groupIndex[j] * nSymbols + (s - 1));
+                }
+            }
+        }
+    }
+
+    private static int indexOf(AbstractGroup[] groups, AbstractGroup g) {
+        for (int i = 0; i < groups.length; i++) {
+            if (groups[i] == g) return i;
+        }
+        return -1;
+    }
+
+    // Appends a node to the bottom of the column and the end of the row starting at 'first'
+    private int addNode(int node, int first, int r, int c) {
+        column[node] = c;
+        row[node] = r;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        size[c]++;
+        if (node == first) {
+            left[node] = node;
+            right[node] = node;
+        } else {
+            left[node] = left[first];
+            right[node] = first;
+            right[left[first]] = node;
+            left[first] = node;
+        }
+        return node + 1;
+    }
+
+    private int getRow(int cell, int symbolCode) {
+        return cell * nSymbols + (symbolCode - 1);
+    }
+
+    // Finds the first solution, see getSolution
+    public boolean solve(ISudoku p) {
+        return countSolutions(p, 1) > 0;
+    }
+
+    // Counts the solutions but stops as soon as 'limit' is reached
+    public int countSolutions(ISudoku p, int limit) {
+        if (p.getTopology() != topology || p.getSymbolCodeRange() != symbolCodeRange) {
+            throw new IllegalArgumentException("Puzzle " + p.getName() + " has a different topology");
+        }
+        nSolutions = 0;
+        firstSolutionSize = 0;
+        solutionLimit = limit;
+        if (limit <= 0) return 0;
+
+        // The symbols on the board are rows that are chosen already
+        int nGivens = 0;
+        boolean isConsistent = true;
+        for (int cell = 0; cell < topology.getCellCount() && isConsistent; cell++) {
+            int symbolCode = p.getSymbolCodeAtCell(cell);
+            if (symbolCode != 0) {
+                int first = rowFirstNode[getRow(cell, symbolCode)];
+                if (!isRowAvailable(first)) {
+                    isConsistent = false;
+                } else {
+                    coverRow(first);
+                    solution[nGivens++] = row[first];
+                }
+            }
+        }
+
+        if (isConsistent) {
+            search(nGivens);
+        }
+
+        // Restore the matrix for the next puzzle
+        for (int k = nGivens - 1; k >= 0; k--) {
+            uncoverRow(rowFirstNode[solution[k]]);
+        }
+
+        return nSolutions;
+    }
+
+    // The symbols of all cells that were empty in the given puzzle, from the first solution
+    public Map<Coord, String> getSolution(ISudoku p) {
+        Map<Coord, String> result = new TreeMap<>();
+        Coord[] allCells = topology.getAllCells();
+        for (int k = 0; k < firstSolutionSize; k++) {
+            int cell = firstSolution[k] / nSymbols;
+            if (!p.isOccupied(cell)) {
+                result.put(allCells[cell], p.symbolCodeToSymbol(1 + firstSolution[k] % nSymbols));
+            }
+        }
+        return result;
+    }
+
+    private boolean search(int depth) {
+        if (right[ROOT] == ROOT) {
+            if (nSolutions++ == 0) {
+                System.arraycopy(solution, 0, firstSolution, 0, depth);
+                firstSolutionSize = depth;
+            }
+            return nSolutions >= solutionLimit;
+        }
+
+        // Column with the fewest rows
+        int c = right[ROOT];
+        for (int j = right[c]; j != ROOT; j = right[j]) {
+            if (size[j] < size[c]) c = j;
+        }
+        if (size[c] == 0) return false;
+
+        boolean isDone = false;
+        cover(c);
+        for (int r = down[c]; r != c && !isDone; r = down[r]) {
+            solution[depth] = row[r];
+            for (int j = right[r]; j != r; j = right[j]) cover(column[j]);
+            isDone = search(depth + 1);
+            for (int j = left[r]; j != r; j = left[j]) uncover(column[j]);
+        }
+        uncover(c);
+        return isDone;
+    }
+
+    // A row can be chosen when none of its columns is covered yet
+    private boolean isRowAvailable(int first) {
+        int n = first;
+        do {
+            if (down[up[n]] != n) return false;
+            n = right[n];
+        } while (n != first);
+        return true;
+    }
+
+    private void coverRow(int first) {
+        int n = first;
+        do {
+            cover(column[n]);
+            n = right[n];
+        } while (n != first);
+    }
+
+    private void uncoverRow(int first) {
+        int n = left[first];
+        do {
+            uncover(column[n]);
+            n = left[n];
+        } while (n != left[first]);
+    }
+
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -0,0 +1,133 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.explain.Explanation;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Compact log of which candidates were removed from which cell, and by what.
+//
+// Eliminators only add an entry per cell: the cell index, the symbol codes that
+// were removed and a Reason that is shared by all cells of the same
+// elimination. The Explanation objects themselves are only created when the
+// reasons of a cell are asked for, which usually is just the one cell the user
+// is looking at.
+//
+// The entries of a cell are chained through 'next', so getting the reasons of
+// a cell does not have to look at the other cells.
+
+public class EliminationLog {
+
+    // Creates the explanation for the removal of the symbols from a cell
+    @FunctionalInterface
+    public interface Reason {
+        Explanation explain(Coord removedFrom, int symbolCodes);
+    }
+
+    private final ISudoku myPuzzle;
+    private final int[] first; // cell index to its first entry, -1 if none
+    private final int[] last; // cell index to its last entry, -1 if none
+
+    private int[] cells = new int[64];
+    private int[] symbolCodes = new int[64];
+    private int[] next = new int[64];
+    private Reason[] reasons = new Reason[64];
+    private int size = 0;
+    private int nForgotten = 0;
+
+    public EliminationLog(ISudoku myPuzzle) {
+        this.myPuzzle = myPuzzle;
+        int nCells = myPuzzle.getAllCells().length;
+        first = new int[nCells];
+        last = new int[nCells];
+        Arrays.fill(first, -1);
+        Arrays.fill(last, -1);
+    }
+
+    public void add(int cellIndex, int removedSymbolCodes, Reason reason) {
+        if (size == cells.length) {
+            if (nForgotten > size / 2) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+        cells[size] = cellIndex;
+        symbolCodes[size] = removedSymbolCodes;
+        reasons[size] = reason;
+        next[size] = -1;
+        if (last[cellIndex] < 0) {
+            first[cellIndex] = size;
+        } else {
+            next[last[cellIndex]] = size;
+        }
+        last[cellIndex] = size;
+        size++;
+    }
+
+    // Forget everything about the cell
+    public void clear(int cellIndex) {
+        for (int e = first[cellIndex]; e >= 0; e = next[e]) {
+            reasons[e] = null;
+            nForgotten++;
+        }
+        first[cellIndex] = -1;
+        last[cellIndex] = -1;
+    }
+
+    public boolean hasReasons(int cellIndex) {
+        return first[cellIndex] >= 0;
+    }
+
+    // Number of entries kept
+    public int size() {
+        return size - nForgotten;
+    }
+
+    // The explanations of the cell, combined in the order of removal just like
+    // they would have been when recorded right away. Null if there are none.
+    public List<Explanation> getExplanations(int cellIndex) {
+        Coord coord = myPuzzle.getAllCells()[cellIndex];
+        List<Explanation> result = null;
+        for (int e = first[cellIndex]; e >= 0; e = next[e]) {
+            result = reasons[e].explain(coord, symbolCodes[e]).combine(coord, result);
+        }
+        return result;
+    }
+
+    private void grow() {
+        int newLength = 2 * cells.length;
+        cells = Arrays.copyOf(cells, newLength);
+        symbolCodes = Arrays.copyOf(symbolCodes, newLength);
+        next = Arrays.copyOf(next, newLength);
+        reasons = Arrays.copyOf(reasons, newLength);
+    }
+
+    // Drop the forgotten entries, keeping the order of the others
+    private void compact() {
+        Arrays.fill(first, -1);
+        Arrays.fill(last, -1);
+        int n = 0;
+        for (int e = 0; e < size; e++) {
+            if (reasons[e] != null) {
+                int cellIndex = cells[e];
+                cells[n] = cellIndex;
+                symbolCodes[n] = symbolCodes[e];
+                reasons[n] = reasons[e];
+                next[n] = -1;
+                if (last[cellIndex] < 0) {
+                    first[cellIndex] = n;
+                } else {
+                    next[last[cellIndex]] = n;
+                }
+                last[cellIndex] = n;
+                n++;
+            }
+        }
+        Arrays.fill(reasons, n, size, null);
+        size = n;
+        nForgotten = 0;
+    }
+}
@@ -1,26 +1,32 @@
 package ottop.sudoku.solver;
 
 // will keep map of candidates
+//
+// Subclasses can be added to the advanced techniques of a SudokuSolver with
+// addEliminator, also from outside this package.
 
+import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.Coord;
-import ottop.sudoku.explain.Explanation;
 import ottop.sudoku.puzzle.ISudoku;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 public abstract class Eliminator {
-    ISudoku myPuzzle;
-    Map<Coord, Set<Integer>> candidatesPerCell;
-    Map<Coord, List<Explanation>> removalReasons;
-    boolean verbose = false;
+    protected ISudoku myPuzzle;
+    protected CandidateGrid candidates;
+    protected EliminationLog removalReasons; // null when not explaining
+    protected boolean verbose = false;
 
-    Eliminator(ISudoku myPuzzle, Map<Coord, Set<Integer>> candidatesPerCell, Map<Coord, List<Explanation>> removalReasons)
+    // Only what changed in the candidates after this change count needs to be
+    // looked at again, see CandidateGrid. By default everything did.
+    private long changedSince = -1;
+    private long nChecked = 0; // groups, symbols etc. that had to be looked at
+    private long nSkipped = 0; // and the ones that had not changed
+
+    protected Eliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons)
     {
         this.myPuzzle = myPuzzle;
-        this.candidatesPerCell = candidatesPerCell;
+        this.candidates = candidates;
         this.removalReasons = removalReasons;
     }
 
@@ -33,51 +39,118 @@ public abstract class Eliminator {
         return this;
     }
 
-    void recordEliminationReason(Coord coord, Explanation reason) {
-        removalReasons.put(coord,
-                reason.combine(coord, removalReasons.get(coord)));
+    // Without explanations (see SudokuSolver) eliminators should not even create
+    // the reasons, so check this first. Reasons passed anyway are ignored.
+    protected boolean isExplaining() {
+        return removalReasons != null;
+    }
+
+    // Only logged, the explanation is created when the reasons of the cell are asked for
+    protected void recordEliminationReason(int cellIndex, int removedSymbolCodes, EliminationLog.Reason reason) {
+        if (removalReasons == null || reason == null) return;
+        removalReasons.add(cellIndex, removedSymbolCodes, reason);
     }
 
-    boolean removePossibility(int symbolCode, Set<Coord> coords, Explanation reason) {
+    protected boolean removePossibility(int symbolCode, Set<Coord> coords, EliminationLog.Reason reason) {
         boolean anyRemoved = false;
         for (Coord c : coords) {
-            boolean removedAtCurrentCoord = false;
-            Set<Integer> currentPossibilities = candidatesPerCell.get(c);
-            if (currentPossibilities != null) {
-                if (currentPossibilities.remove(symbolCode)) {
-                    anyRemoved = true;
-                    removedAtCurrentCoord = true;
-                }
-            }
-            if (removedAtCurrentCoord) {
-                recordEliminationReason(c, reason);
+            int cellIndex = candidates.indexOf(c);
+            if (candidates.remove(cellIndex, symbolCode)) {
+                anyRemoved = true;
+                recordEliminationReason(cellIndex, CandidateGrid.bit(symbolCode), reason);
             }
         }
         return anyRemoved;
     }
 
-    boolean removePossibilities(Set<Integer> symbolCodes, Coord coord, Explanation reason) {
-        boolean anyRemoved = false;
-        for (int symbolCode : symbolCodes) {
-            Set<Integer> currentPossibilities = candidatesPerCell.get(coord);
-            if (currentPossibilities != null) {
-                if (currentPossibilities.remove(symbolCode)) {
-                    anyRemoved = true;
-                }
-            }
-        }
-        if (anyRemoved) {
-            recordEliminationReason(coord, reason);
+    // Symbol codes given as a CandidateGrid mask
+    protected boolean removePossibilities(int symbolCodes, Coord coord, EliminationLog.Reason reason) {
+        int cellIndex = candidates.indexOf(coord);
+        int removed = candidates.removeAll(cellIndex, symbolCodes);
+        if (removed != 0) {
+            recordEliminationReason(cellIndex, removed, reason);
         }
-        return anyRemoved;
+        return removed != 0;
     }
 
-    Set<Integer> getCandidatesInArea(Set<Coord> subarea) {
-        Set<Integer> p = new HashSet<>();
+    // Union of the candidates in the area, as a CandidateGrid mask
+    protected int getCandidatesInArea(Set<Coord> subarea) {
+        int mask = 0;
         for (Coord c : subarea) {
-            p.addAll(candidatesPerCell.get(c));
+            mask |= candidates.get(c);
+        }
+        return mask;
+    }
+
+    protected int getUnoccupiedSize(AbstractGroup g) {
+        int size = 0;
+        for (int i : g.getCellIndexes()) {
+            if (!myPuzzle.isOccupied(i)) size++;
+        }
+        return size;
+    }
+
+    // Mask of the symbols already placed in the group
+    protected int getSymbolCodesInGroup(AbstractGroup g) {
+        int mask = 0;
+        for (int i : g.getCellIndexes()) {
+            mask |= CandidateGrid.bit(myPuzzle.getSymbolCodeAtCell(i));
+        }
+        return mask & ~1;
+    }
+
+    void setChangedSince(long changeCount) {
+        this.changedSince = changeCount;
+    }
+
+    long getCheckedCount() {
+        return nChecked;
+    }
+
+    long getSkippedCount() {
+        return nSkipped;
+    }
+
+    // These tell if something changed since the last run and count the work saved
+    // when it did not. Only skip if the result of the group (or symbol) depends on
+    // nothing else.
+
+    protected boolean isGroupChanged(int groupIndex) {
+        return countCheck(candidates.getGroupStamp(groupIndex) > changedSince);
+    }
+
+    protected boolean isSymbolChanged(int symbolCode) {
+        return countCheck(candidates.getSymbolStamp(symbolCode) > changedSince);
+    }
+
+    // For eliminators that depend on all of the candidates
+    protected boolean isAnySymbolChanged() {
+        boolean changed = false;
+        for (int symbolCode = 1; symbolCode < myPuzzle.getSymbolCodeRange() && !changed; symbolCode++) {
+            changed = candidates.getSymbolStamp(symbolCode) > changedSince;
+        }
+        return countCheck(changed);
+    }
+
+    // Symbol changed in any of the groups
+    protected boolean isSymbolChangedInGroups(int symbolCode, int... groupIndexes) {
+        boolean changed = false;
+        for (int g : groupIndexes) {
+            if (candidates.getGroupSymbolStamp(g, symbolCode) > changedSince) {
+                changed = true;
+                break;
+            }
+        }
+        return countCheck(changed);
+    }
+
+    private boolean countCheck(boolean changed) {
+        if (changed) {
+            nChecked++;
+        } else {
+            nSkipped++;
         }
-        return p;
+        return changed;
     }
 
     public abstract boolean eliminate();
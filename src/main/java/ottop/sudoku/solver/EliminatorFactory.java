@@ -0,0 +1,11 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.puzzle.ISudoku;
+
+// Creates an Eliminator for one round of elimination. The constructors of the
+// eliminators have this signature, so e.g. XWingEliminator::new will do.
+
+@FunctionalInterface
+public interface EliminatorFactory {
+    Eliminator create(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons);
+}
@@ -0,0 +1,222 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+
+// The advanced elimination techniques that SudokuSolver tries when there are
+// no singles left. Techniques are registered by name with a factory and can be
+// switched on and off, so new ones can be added without changing SudokuSolver.
+//
+// Every stage keeps track of how often it ran, how often it eliminated anything
+// and how long that took. With adaptive ordering the stages are tried by their
+// expected time per hit (average time divided by hit rate), so cheap productive
+// techniques go first and an expensive one like forcing chains only runs when
+// everything else failed. The expected cost given at registration counts as
+// one measurement, so the order starts out sensible before anything has run.
+// Adaptive ordering is off by default: the measured times differ per run and
+// per machine, and so would the moves and explanations found first. Without it
+// the stages run in the order they were registered, cheapest first.
+//
+// Stages also remember up to which change of the candidates they ran, so the
+// next time they only need to look at the groups and symbols that changed since.
+
+public class EliminatorPipeline {
+    public static class Stage {
+        private final String name;
+        private final EliminatorFactory factory;
+        private final long expectedNanos;
+        private final int registrationOrder;
+        private boolean enabled = true;
+        private long calls = 0;
+        private long hits = 0;
+        private long nanos = 0;
+        private long checked = 0;
+        private long skipped = 0;
+        private CandidateGrid lastCandidates = null;
+        private long lastChangeCount = -1;
+
+        private Stage(String name, EliminatorFactory factory, long expectedNanos, int registrationOrder) {
+            this.name = name;
+            this.factory = factory;
+            this.expectedNanos = expectedNanos;
+            this.registrationOrder = registrationOrder;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        // Units of work (groups, symbols, intersections) looked at and skipped
+        // because they had not changed since the previous run
+        public long getCheckedCount() {
+            return checked;
+        }
+
+        public long getSkippedCount() {
+            return skipped;
+        }
+
+        public double getAverageNanos() {
+            return (double) (nanos + expectedNanos) / (calls + 1);
+        }
+
+        // Laplace smoothed, so never 0 and 0.5 when nothing is known yet
+        public double getHitRate() {
+            return (hits + 1.0) / (calls + 2.0);
+        }
+
+        public double getExpectedNanosPerHit() {
+            return getAverageNanos() / getHitRate();
+        }
+
+        public String toString() {
+            return String.format("%s: %d calls, %d hits, avg %.1f us, %.1f us/hit, skipped %d of %d%s",
+                    name, calls, hits, getAverageNanos() / 1000.0, getExpectedNanosPerHit() / 1000.0,
+                    skipped, checked + skipped, enabled ? "" : " (disabled)");
+        }
+    }
+
+    // Expected cost of a technique that does not say, puts it after the built in ones
+    public static final long DEFAULT_EXPECTED_NANOS = 100_000_000L;
+
+    private final List<Stage> stages = new ArrayList<>();
+    private boolean adaptive = false;
+
+    public EliminatorPipeline register(String name, EliminatorFactory factory) {
+        return register(name, factory, DEFAULT_EXPECTED_NANOS);
+    }
+
+    // Registering a name again replaces the factory but keeps the statistics
+    public EliminatorPipeline register(String name, EliminatorFactory factory, long expectedNanos) {
+        Stage existing = getStage(name);
+        Stage stage = new Stage(name, factory, expectedNanos,
+                existing == null ? stages.size() : existing.registrationOrder);
+        if (existing == null) {
+            stages.add(stage);
+        } else {
+            stage.enabled = existing.enabled;
+            stage.calls = existing.calls;
+            stage.hits = existing.hits;
+            stage.nanos = existing.nanos;
+            stage.checked = existing.checked;
+            stage.skipped = existing.skipped;
+            stages.set(stages.indexOf(existing), stage);
+        }
+        return this;
+    }
+
+    public EliminatorPipeline setEnabled(String name, boolean onOff) {
+        Stage stage = getStage(name);
+        if (stage == null) {
+            throw new IllegalArgumentException("No eliminator registered as " + name);
+        }
+        stage.enabled = onOff;
+        return this;
+    }
+
+    public EliminatorPipeline setAllEnabled(boolean onOff) {
+        for (Stage stage : stages) {
+            stage.enabled = onOff;
+        }
+        return this;
+    }
+
+    public boolean isEnabled(String name) {
+        Stage stage = getStage(name);
+        return stage != null && stage.enabled;
+    }
+
+    public EliminatorPipeline setAdaptive(boolean onOff) {
+        this.adaptive = onOff;
+        return this;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public Stage getStage(String name) {
+        for (Stage stage : stages) {
+            if (stage.name.equals(name)) return stage;
+        }
+        return null;
+    }
+
+    // All stages in the order they will be tried next
+    public List<Stage> getStages() {
+        List<Stage> ordered = new ArrayList<>(stages);
+        if (adaptive) {
+            ordered.sort(Comparator.comparingDouble(Stage::getExpectedNanosPerHit)
+                    .thenComparingInt((s) -> s.registrationOrder));
+        } else {
+            ordered.sort(Comparator.comparingInt((s) -> s.registrationOrder));
+        }
+        return ordered;
+    }
+
+    // Runs the enabled stages until one eliminates something, or all of them
+    // when not stopping early. Returns true if anything was eliminated.
+    boolean eliminate(ISudoku myPuzzle, CandidateGrid candidates,
+                      EliminationLog removalReasons, boolean earlyStopping, boolean verbose) {
+        boolean hasEliminated = false;
+        for (Stage stage : getStages()) {
+            if (hasEliminated && earlyStopping) break;
+            if (!stage.enabled) continue;
+
+            long start = System.nanoTime();
+            Eliminator e = stage.factory.create(myPuzzle, candidates, removalReasons);
+            e.setVerbose(verbose);
+            if (stage.lastCandidates == candidates) {
+                e.setChangedSince(stage.lastChangeCount);
+            }
+            stage.lastCandidates = candidates;
+            stage.lastChangeCount = candidates.getChangeCount();
+            boolean stageHasEliminated = e.eliminate();
+            stage.nanos += System.nanoTime() - start;
+            stage.calls++;
+            stage.checked += e.getCheckedCount();
+            stage.skipped += e.getSkippedCount();
+            if (stageHasEliminated) {
+                stage.hits++;
+                hasEliminated = true;
+            }
+        }
+        return hasEliminated;
+    }
+
+    // Fraction of the work the stages could skip because nothing had changed
+    public double getSkippedFraction() {
+        long checked = 0;
+        long skipped = 0;
+        for (Stage stage : stages) {
+            checked += stage.checked;
+            skipped += stage.skipped;
+        }
+        return checked + skipped == 0 ? 0.0 : (double) skipped / (checked + skipped);
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : getStages()) {
+            sb.append(stage).append("\n");
+        }
+        return sb.toString();
+    }
+}
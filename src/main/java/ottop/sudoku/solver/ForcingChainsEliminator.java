@@ -2,12 +2,17 @@ package ottop.sudoku.solver;
 
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
 import ottop.sudoku.explain.Explanation;
 import ottop.sudoku.explain.ForcingChainsReason;
 import ottop.sudoku.puzzle.ISudoku;
 
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 // forcing chain forces a move
@@ -20,20 +25,20 @@ public class ForcingChainsEliminator extends Eliminator {
 
     class ForcingChain {
         Coord startingPoint;
-        List<Step>[] chains;
+        Chain[] chains;
         String[] startingSymbols;
 
         ForcingChain(Coord c) {
             startingPoint = c;
-            Set<Integer> candidates = candidatesPerCell.get(c);
-            chains = new List[candidates.size()];
-            startingSymbols = new String[candidates.size()];
+            int startCandidates = candidates.get(c);
+            chains = new Chain[CandidateGrid.popcount(startCandidates)];
+            startingSymbols = new String[chains.length];
             int i=0;
-            for (Integer candidate: candidates) {
-                String symbol = myPuzzle.symbolCodeToSymbol(candidate);
-                startingSymbols[i] = symbol;
-                chains[i] = new ArrayList<>();
-                chains[i].add(new NakedSingleMoveStep(chains[i], null, c, symbol));
+            for (int candidate = CandidateGrid.firstSymbol(startCandidates); candidate >= 0;
+                 candidate = CandidateGrid.nextSymbol(startCandidates, candidate)) {
+                startingSymbols[i] = myPuzzle.symbolCodeToSymbol(candidate);
+                chains[i] = new Chain();
+                chains[i].add(new NakedSingleMoveStep(chains[i], null, myPuzzle.getCellIndex(c), candidate));
                 i++;
             }
         }
@@ -63,15 +68,18 @@ public class ForcingChainsEliminator extends Eliminator {
             return sb.toString();
         }
 
+        // Stops at a step that would go beyond maxDepth, but the search can
+        // continue from there with a larger maxDepth
         private boolean nextConclusion(int maxDepth) {
             boolean hasReachedNextConclusion = false;
             while (!hasReachedNextConclusion) {
                 Step s = findNextStep();
                 if (s == null) return false;
                 if (s.level + 1 > maxDepth) {
-//                    System.out.println("Bail out as s level is " + s.level + " and max depth = " + maxDepth);
+                    isDepthLimited = true;
                     return false;
                 }
+                if (!spendNode()) return false;
                 // TODO if equal then we shoud prefer the one with total smaller size but can only do that later
 //                System.out.println("Level next step: " + s.level);
                 hasReachedNextConclusion = s.addConclusions();
@@ -79,25 +87,39 @@ public class ForcingChainsEliminator extends Eliminator {
             return hasReachedNextConclusion;
         }
 
+        // Steps are added in order of their level, so the first unresolved step
+        // of a chain is also the one with the lowest level
         private Step findNextStep() {
             Step bestStep = null;
-            for (int i=0; i<chains.length; i++) {
-                for (Step aStep: chains[i]) {
-                    if (!aStep.isResolved) {
-                        if (bestStep == null || aStep.level < bestStep.level) {
-                            bestStep = aStep;
-                        }
-                    }
+            for (Chain chain : chains) {
+                Step aStep = chain.getFirstUnresolved();
+                if (aStep != null && (bestStep == null || aStep.level < bestStep.level)) {
+                    bestStep = aStep;
                 }
             }
             return bestStep;
         }
 
+        // Only a step added since the last check can complete a conclusion that
+        // all chains share, so only those are looked up in the other chains
+        private boolean hasNewSharedConclusion() {
+            boolean isShared = false;
+            for (Chain chain : chains) {
+                for (; chain.nChecked < chain.size(); chain.nChecked++) {
+                    Step s = chain.get(chain.nChecked);
+                    if (!isShared) {
+                        isShared = Arrays.stream(chains).allMatch(other -> other.hasConclusion(s));
+                    }
+                }
+            }
+            return isShared;
+        }
+
         private Set<Step> getSharedConclusions() {
             // find overlap between all chains
-            Set<Step> shared = new HashSet<>(chains[0]);
+            Set<Step> shared = new HashSet<>(chains[0].getSteps());
             for (int i=1; i<chains.length; i++) {
-                shared.retainAll(chains[i]);
+                shared.retainAll(chains[i].getSteps());
             }
             return shared;
         }
@@ -129,7 +151,7 @@ public class ForcingChainsEliminator extends Eliminator {
             Set<Step> shared = null;
             while (shared == null || shared.size() == 0) {
                 if (nextConclusion(maxDepth)) {
-                    shared = getSharedConclusions();
+                    shared = hasNewSharedConclusion() ? getSharedConclusions() : Collections.emptySet();
                 } else {
                     break;
                 }
@@ -161,7 +183,7 @@ public class ForcingChainsEliminator extends Eliminator {
                 int currentChainMaxLevel = -1;
                 for (int i=0; i<chains.length; i++) {
                     List<Step> stepChain = null;
-                    for (Step s: chains[i]) {
+                    for (Step s: chains[i].getSteps()) {
                         if (s.equals(sharedConclusion)) {
                             if (s.level > currentChainMaxLevel) currentChainMaxLevel = s.level;
                             List<Step> currentStepChain = getSequenceLeadingUpTo(s); // s.parent to exclude last
@@ -182,33 +204,86 @@ public class ForcingChainsEliminator extends Eliminator {
 
     }
 
+    // The steps of one chain in the order they were added. Per cell it keeps the
+    // symbols of the steps as bitmasks, one per kind of step, so finding a step
+    // of a chain is a lookup instead of a scan through the list.
+    class Chain {
+        private final List<Step> steps = new ArrayList<>();
+        private final int[][] symbolsByKind = new int[KIND_COUNT][myPuzzle.getAllCells().length];
+        private int firstUnresolved = 0;
+        private int nChecked = 0; // steps already looked up in the other chains
+
+        void add(Step step) {
+            symbolsByKind[step.getKind()][step.cellIndex] |= CandidateGrid.bit(step.symbolCode);
+            steps.add(step);
+        }
+
+        Step get(int i) {
+            return steps.get(i);
+        }
+
+        int size() {
+            return steps.size();
+        }
+
+        List<Step> getSteps() {
+            return Collections.unmodifiableList(steps);
+        }
+
+        Step getFirstUnresolved() {
+            while (firstUnresolved < size() && get(firstUnresolved).isResolved) firstUnresolved++;
+            return firstUnresolved < size() ? get(firstUnresolved) : null;
+        }
+
+        // Is there a step equal to this one
+        boolean hasConclusion(Step step) {
+            return CandidateGrid.hasSymbol(symbolsByKind[step.getKind()][step.cellIndex], step.symbolCode);
+        }
+
+        boolean hasStep(int cellIndex, int symbolCode) {
+            return CandidateGrid.hasSymbol(symbolsByKind[ELIMINATION][cellIndex] |
+                    symbolsByKind[NAKED_SINGLE][cellIndex] | symbolsByKind[UNIQUE_VALUE][cellIndex], symbolCode);
+        }
+
+        boolean hasMove(int cellIndex, int symbolCode) {
+            return CandidateGrid.hasSymbol(symbolsByKind[NAKED_SINGLE][cellIndex] |
+                    symbolsByKind[UNIQUE_VALUE][cellIndex], symbolCode);
+        }
+    }
+
+    private static final int ELIMINATION = 0;
+    private static final int NAKED_SINGLE = 1;
+    private static final int UNIQUE_VALUE = 2;
+    private static final int KIND_COUNT = 3;
+
     // TODO: use more broadly? Coord + symbol
     public class Step{
         Step parent;
         List<Step> children = new ArrayList<>();
         boolean isResolved = false;
         int level = 0;
+        int cellIndex;
+        int symbolCode;
         Coord coord;
         String symbol;
-        List<Step> myContainer;
+        Chain myContainer;
 
-        Step(List<Step> container, Step parent, Coord coord, String symbol) {
+        Step(Chain container, Step parent, int cellIndex, int symbolCode) {
             this.myContainer = container;
             this.parent = parent;
-            this.coord = coord;
-            this.symbol = symbol;
+            this.cellIndex = cellIndex;
+            this.symbolCode = symbolCode;
+            this.coord = myPuzzle.getAllCells()[cellIndex];
+            this.symbol = myPuzzle.symbolCodeToSymbol(symbolCode);
             if (parent != null) {
                 level = 1+parent.level;
                 parent.children.add(this);
             }
         }
-        boolean isInParentChain(Coord buddy) {
-            if (parent == null) return false;
-            if (parent.coord.equals(buddy)) return true;
-            return parent.isInParentChain(buddy);
-        }
         public Coord getCoord() { return coord; }
 
+        int getKind() { return -1; }
+
         @Override
         public int hashCode() {
             return coord.hashCode() ^ symbol.hashCode();
@@ -218,7 +293,7 @@ public class ForcingChainsEliminator extends Eliminator {
         public boolean equals(Object obj) {
             if (obj == null) return false;
             if (obj.getClass().equals(getClass())) {
-                return ((Step) obj).coord.equals(coord) && ((Step) obj).symbol.equals(symbol);
+                return ((Step) obj).cellIndex == cellIndex && ((Step) obj).symbolCode == symbolCode;
             }
             return super.equals(obj);
         }
@@ -231,29 +306,22 @@ public class ForcingChainsEliminator extends Eliminator {
     }
 
     abstract class MoveStep extends Step {
-        MoveStep(List<Step> container, Step parent, Coord c, String symbol) {
-            super(container, parent, c, symbol);
+        MoveStep(Chain container, Step parent, int cellIndex, int symbolCode) {
+            super(container, parent, cellIndex, symbolCode);
         }
         boolean addConclusions() {
             boolean hasAdded = false;
-            int symbolCode = myPuzzle.symbolToSymbolCode(symbol);
-            for (Coord buddy: myPuzzle.getBuddies(coord)) {
-                if (!myPuzzle.isOccupied(buddy) && !isInParentChain(buddy)) {
-                    // see if buddy is already in the list
-                    // if buddy is a move that would be inconsistent?
-                    // if an elimination we could combine but perhaps that goes too far
-                    if (myContainer.contains(buddy)) {
-                        System.out.println("**UNEXPECTED** buddy " + buddy + " already present in " + this);
-                    }
-
-                    Set<Integer> buddyCandidates = candidatesPerCell.get(buddy);
-                    if (buddyCandidates.contains(symbolCode)) {
-                        if (myContainer.add(new EliminationStep(myContainer, this, buddy, symbol))) {
-                            hasAdded = true;
-                            // A second move on the same coord with different symbol would be inconsistent
-                            // A second elimination on the same coord could be valid although strange
-                        }
-                    }
+            long[] parentCells = new long[PeerTable.wordCount(myPuzzle.getAllCells().length)];
+            for (Step p = parent; p != null; p = p.parent) {
+                parentCells[p.cellIndex >> 6] |= 1L << p.cellIndex;
+            }
+            // The open peers that still have the symbol, the same for every chain this round
+            for (int buddyIndex : eliminationTargets[cellIndex * symbolCodeRange + symbolCode]) {
+                if ((parentCells[buddyIndex >> 6] & (1L << buddyIndex)) == 0) {
+                    // A second move on the same coord with different symbol would be inconsistent
+                    // A second elimination on the same coord could be valid although strange
+                    myContainer.add(new EliminationStep(myContainer, this, buddyIndex, symbolCode));
+                    hasAdded = true;
                 }
             }
             isResolved = true;
@@ -262,9 +330,10 @@ public class ForcingChainsEliminator extends Eliminator {
     }
 
     class NakedSingleMoveStep extends MoveStep {
-        NakedSingleMoveStep(List<Step> container, Step parent, Coord c, String symbol) {
-            super(container, parent, c, symbol);
+        NakedSingleMoveStep(Chain container, Step parent, int cellIndex, int symbolCode) {
+            super(container, parent, cellIndex, symbolCode);
         }
+        int getKind() { return NAKED_SINGLE; }
         public String toString() {
             return "S:"+super.toString();
         }
@@ -273,20 +342,22 @@ public class ForcingChainsEliminator extends Eliminator {
     class UniqueValueMoveStep extends MoveStep {
         private final AbstractGroup uniqueInGroup;
 
-        UniqueValueMoveStep(List<Step> container, Step parent, Coord c, String symbol, AbstractGroup uniqueInGroup) {
-            super(container, parent, c, symbol);
+        UniqueValueMoveStep(Chain container, Step parent, int cellIndex, int symbolCode, AbstractGroup uniqueInGroup) {
+            super(container, parent, cellIndex, symbolCode);
             this.uniqueInGroup = uniqueInGroup;
         }
+        int getKind() { return UNIQUE_VALUE; }
         public String toString() {
             return "U("+uniqueInGroup+"):"+super.toString();
         }
     }
 
     class EliminationStep extends Step {
-        EliminationStep(List<Step> container, Step parent, Coord c, String symbol)
+        EliminationStep(Chain container, Step parent, int cellIndex, int symbolCode)
         {
-            super(container, parent, c, symbol);
+            super(container, parent, cellIndex, symbolCode);
         }
+        int getKind() { return ELIMINATION; }
         boolean addConclusions() {
             boolean hasAdded = false;
 
@@ -296,91 +367,59 @@ public class ForcingChainsEliminator extends Eliminator {
             // could also apply any eliminations from the same chain. However this
             // would become rather difficult to understand. We would also have to
             // include those in the explanations.
-            Set<Integer> candidates = new TreeSet<>(candidatesPerCell.get(coord)); // is a copy of the candidates
-            Step p = this;
-            while (p != null) {
+            int remaining = candidates.get(cellIndex);
+            for (Step p = this; p != null; p = p.parent) {
                 // For longer chains there could be multiple eliminations in
                 // the same cell. But unfortunately this does not happen often.
-                if (p.coord.equals(this.coord)) {
-                    candidates.remove(myPuzzle.symbolToSymbolCode(p.symbol));
+                if (p.cellIndex == cellIndex) {
+                    remaining &= ~CandidateGrid.bit(p.symbolCode);
                 }
-                p = p.parent;
             }
 
             // Check for NO candidates. If that happens this chain is resulting
             // in an inconsistent state so should be dismissed.
-            if (candidates.size() == 0) {
-                //System.out.println("***** INCONSISTENT **** nothing remaining at " + coord);
+            if (remaining == 0) {
                 isResolved = true;
                 return false;
             }
 
             // Naked single if one candidate remaining
-            if (candidates.size() == 1) {
-                String loneNumber = myPuzzle.symbolCodeToSymbol(candidates.stream().findAny().get());
-                if (myContainer.add(new NakedSingleMoveStep(myContainer, this, coord, loneNumber))) {
-                    hasAdded = true;
-                }
+            if (CandidateGrid.popcount(remaining) == 1) {
+                myContainer.add(new NakedSingleMoveStep(myContainer, this, cellIndex, CandidateGrid.lowestSymbol(remaining)));
+                hasAdded = true;
             }
 
             // Now check for lone symbols
             if (!hasAdded) {
-                int symbolCode = myPuzzle.symbolToSymbolCode(symbol);
-
-                for (AbstractGroup buddyGrp : myPuzzle.getBuddyGroups(coord)) {
+                AbstractGroup[] buddyGroups = myPuzzle.getBuddyGroups(cellIndex);
+                int[] buddyGroupIndexes = myPuzzle.getTopology().getBuddyGroupIndexes(cellIndex);
+                for (int j = 0; j < buddyGroups.length; j++) {
+                    if (CandidateGrid.hasSymbol(symbolCodesInGroup[buddyGroupIndexes[j]], symbolCode)) continue;
 
-                    // For a buddy group see where the current symbol is a possibility. Start with
-                    // the possibilities remaining from the current puzzle. Exclude the current cell
-                    // as the elimination is there. But also eliminate any cells from the parent chain
-                    // that eliminate the symbol and are in this same group.
-
-                    Set<Coord> possibilities = new HashSet<>();
-                    for (Coord c : buddyGrp.getCoords()) {
-                        if (!c.equals(coord)) { // it is eliminated at this coord so not adding as a possibility
-                            if (buddyGrp.isPossibility(symbolCode, c)) {
-                                possibilities.add(c);
-                            }
-                        }
-                    }
+                    // For a buddy group see where the current symbol is a possibility: the open
+                    // cells except this one, as the elimination is here, and except the cells
+                    // where the chain already has a step for the symbol. A move of the same
+                    // symbol in this group already settles it, the symbol then is not unique
+                    // at any of the remaining cells.
 
                     // TODO: this is incomplete.. We should consider the full chain I'm afraid
                     // because just checking the parent chain may miss out on sibling eliminations.
-
-                    // TODO may work, see tour 10 removal 8 from r4c4...
-                    // however now only at 42/95 in the magic tour, only 1 extra...
-
-                    // See if there is a parent that is in the same buddy group and that
-                    // eliminates the same symbol
-//                    p = this.parent;
-//                    while (p != null) {
-//                        if (p.symbol.equals(this.symbol) && buddyGrp.isInGroup(p.coord)) {
-//                            possibilities.remove(p.coord);
-//                        }
-//                        p = p.parent;
-//                    }
-
-                    for (Step s : myContainer) {
-                        if (s.symbol.equals(this.symbol) && buddyGrp.isInGroup(s.coord)) {
-                            possibilities.remove(s.coord);
+                    boolean isSettled = false;
+                    int nPossibilities = 0;
+                    int possibility = -1;
+                    for (int c : buddyGroups[j].getCellIndexes()) {
+                        if (myContainer.hasMove(c, symbolCode)) {
+                            isSettled = true;
+                        } else if (c != cellIndex && !myPuzzle.isOccupied(c) && !myContainer.hasStep(c, symbolCode)) {
+                            nPossibilities++;
+                            possibility = c;
                         }
                     }
 
-
-                    // TODO: this SEEMS to increase magic tour to 46/95 from 41/95.
-                    // TODO: double check this carefully
-                    // TODO: hey we lost one, now 45...
-
                     // We have only 1 possibility for "symbolCode" in this buddy group
-                    if (possibilities.size() == 1) {
-                        //                        System.out.println("Unique symbol " + symbol + " (eliminated at " + coord +
-                        //                                ") in " + buddyGrp + ": " + possibilities);
-
-                        // Unique symbol
-                        if (myContainer.add(new UniqueValueMoveStep(myContainer, this,
-                                possibilities.stream().findAny().get(), symbol,
-                                buddyGrp))) {
-                            hasAdded = true;
-                        }
+                    if (!isSettled && nPossibilities == 1) {
+                        myContainer.add(new UniqueValueMoveStep(myContainer, this, possibility, symbolCode, buddyGroups[j]));
+                        hasAdded = true;
                     }
                 }
             }
@@ -394,8 +433,107 @@ public class ForcingChainsEliminator extends Eliminator {
         }
     }
 
-    ForcingChainsEliminator(ISudoku myPuzzle, Map<Coord, Set<Integer>> candidatesPerCell, Map<Coord, List<Explanation>> removalReasons) {
-        super(myPuzzle, candidatesPerCell, removalReasons);
+    // Per round, so the same for all chains: by cell index * symbolCodeRange +
+    // symbol code the open peers that have the symbol as candidate, and by group
+    // index the symbols placed in the group.
+    private int symbolCodeRange;
+    private int[][] eliminationTargets;
+    private int[] symbolCodesInGroup;
+
+    private final SearchBudget budget;
+
+    // State of the search of this round, shared by all workers
+    private final AtomicLong nodeCount = new AtomicLong();
+    private long startNanos;
+    private volatile boolean isOutOfBudget = false;
+    private volatile boolean isDepthLimited = false; // some chain stopped at the current depth
+
+    ForcingChainsEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        this(myPuzzle, candidates, removalReasons, new SearchBudget());
+    }
+
+    ForcingChainsEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons,
+                            SearchBudget budget) {
+        super(myPuzzle, candidates, removalReasons);
+        this.budget = budget;
+    }
+
+    // Counts a step that is about to be followed, false when the budget ran out.
+    // The clock is not looked at for every step, that would cost more than the step.
+    private boolean spendNode() {
+        if (isOutOfBudget) return false;
+        long n = nodeCount.incrementAndGet();
+        if (n > budget.getMaxNodes() || ((n & 0xFF) == 0 && System.nanoTime() - startNanos > budget.getMaxNanos())) {
+            isOutOfBudget = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void initRoundTables() {
+        int nCells = myPuzzle.getAllCells().length;
+        symbolCodeRange = myPuzzle.getSymbolCodeRange();
+        eliminationTargets = new int[nCells * symbolCodeRange][];
+        int[] targets = new int[nCells];
+        for (int i = 0; i < nCells; i++) {
+            if (myPuzzle.isOccupied(i)) continue;
+            int[] peers = myPuzzle.getPeers(i);
+            for (int symbolCode = 1; symbolCode < symbolCodeRange; symbolCode++) {
+                int n = 0;
+                for (int peer : peers) {
+                    if (!myPuzzle.isOccupied(peer) && candidates.contains(peer, symbolCode)) {
+                        targets[n++] = peer;
+                    }
+                }
+                eliminationTargets[i * symbolCodeRange + symbolCode] = Arrays.copyOf(targets, n);
+            }
+        }
+        AbstractGroup[] groups = myPuzzle.getTopology().getGroups();
+        symbolCodesInGroup = new int[groups.length];
+        for (int g = 0; g < groups.length; g++) {
+            symbolCodesInGroup[g] = getSymbolCodesInGroup(groups[g]);
+        }
+    }
+
+    // Searches the forcing chains from the start cells (from, to) in parallel, up
+    // to the given depth. The searches are kept, so the next depth continues
+    // where this one stopped.
+    private class StartCellsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int maxDepth;
+        private final ForcingChain[] searches;
+        private final AtomicReferenceArray<List<ForcingChainsReason>> found;
+
+        StartCellsTask(int from, int to, int maxDepth, ForcingChain[] searches,
+                       AtomicReferenceArray<List<ForcingChainsReason>> found) {
+            this.from = from;
+            this.to = to;
+            this.maxDepth = maxDepth;
+            this.searches = searches;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new StartCellsTask(from, mid, maxDepth, searches, found),
+                        new StartCellsTask(mid, to, maxDepth, searches, found));
+                return;
+            }
+            if (!myPuzzle.isOccupied(from) && candidates.size(from) > 1) {
+                if (searches[from] == null) {
+                    searches[from] = new ForcingChain(myPuzzle.getAllCells()[from]);
+                }
+                List<ForcingChainsReason> fcrs = searches[from].findChains(maxDepth);
+                if (fcrs != null && fcrs.size() > 0) {
+                    found.set(from, fcrs);
+                }
+            }
+        }
     }
 
     public boolean eliminate() {
@@ -404,46 +542,71 @@ public class ForcingChainsEliminator extends Eliminator {
         // TODO find start by finding cells with 2 then 3 etc possibilities
         // TODO or just try all and use the one with smallest total conclusions but > 0
 
-        ForcingChainsReason bestFc = null;
-        Map<Step, ForcingChainsReason> remainingFcs = new HashMap<>();
-        for (Coord start: myPuzzle.getAllCells()) {
-            if (!myPuzzle.isOccupied(start) && candidatesPerCell.get(start).size()>1) {
-                // Find all chains starting at 'start' but early stop at depth > current best depth
-                // Opportunity here to start with cell with only 2 or 3 candidates
-                // TODO or max depth to 5 or so..
-
-                ForcingChain fc = new ForcingChain(start);
-                int maxDepth = bestFc == null ? Integer.MAX_VALUE : bestFc.getChainDepth();
+        // Iterative deepening: all start cells are searched one level deeper at a
+        // time until some chains are found, so those are the shortest ones, or
+        // until the budget runs out. Within a level the start cells are independent
+        // and searched in parallel, the chains are merged in cell order so the
+        // outcome does not depend on the timing of the workers.
+        initRoundTables();
+        Coord[] allCells = myPuzzle.getAllCells();
+        ForcingChain[] searches = new ForcingChain[allCells.length];
+        AtomicReferenceArray<List<ForcingChainsReason>> found = new AtomicReferenceArray<>(allCells.length);
+        startNanos = System.nanoTime();
+        int depth = 0;
+        boolean hasFound = false;
+        do {
+            depth++;
+            isDepthLimited = false;
+            ForkJoinPool.commonPool().invoke(new StartCellsTask(0, allCells.length, depth, searches, found));
+            for (int i = 0; i < allCells.length && !hasFound; i++) {
+                hasFound = found.get(i) != null;
+            }
+        } while (!hasFound && isDepthLimited && !isOutOfBudget && depth < budget.getMaxDepth());
 
-                List<ForcingChainsReason> fcrs = fc.findChains(maxDepth);
+        // When no chain stopped at the depth limit, going deeper would not find anything either
+        budget.setLastSearch(!isOutOfBudget && (hasFound || !isDepthLimited),
+                nodeCount.get(), depth, System.nanoTime() - startNanos);
+        if (verbose) {
+            System.out.println(budget);
+        }
 
-//                System.out.println("\n"+fc);
-//                System.out.println("Results in " + (fcrs==null?0:fcrs.size()) + " possible chains");
+        // A chain found is never longer than the depth, but when the budget ran
+        // out there may be fewer of them
+        int bestDepth = Integer.MAX_VALUE;
+        for (int i = 0; i < allCells.length; i++) {
+            List<ForcingChainsReason> fcrs = found.get(i);
+            if (fcrs == null) continue;
+            for (ForcingChainsReason fcr : fcrs) {
+                bestDepth = Math.min(bestDepth, fcr.getChainDepth());
+            }
+        }
 
-                if (fcrs != null && fcrs.size() > 0) {
-                    for (ForcingChainsReason fcr: fcrs) {
-                        Coord removal = fcr.getRemovedFrom().stream().findAny().get();
-                        Step mv = new Step(null, null, removal, fcr.getSymbol());
-                        if (fcr.compareTo(remainingFcs.get(mv)) < 0) {
-                            remainingFcs.put(mv, fcr); // Better one at same cell/symbol
-                        }
+        ForcingChainsReason bestFc = null;
+        Map<Step, ForcingChainsReason> remainingFcs = new HashMap<>();
+        for (int i = 0; i < allCells.length; i++) {
+            if (found.get(i) == null) continue;
+            Coord start = allCells[i];
+            for (ForcingChainsReason fcr: found.get(i)) {
+                if (fcr.getChainDepth() > bestDepth) continue;
+
+                Coord removal = fcr.getRemovedFrom().stream().findAny().get();
+                Step mv = new Step(null, null, myPuzzle.getCellIndex(removal), myPuzzle.symbolToSymbolCode(fcr.getSymbol()));
+                if (fcr.compareTo(remainingFcs.get(mv)) < 0) {
+                    remainingFcs.put(mv, fcr); // Better one at same cell/symbol
+                }
 
-                        if (verbose) {
-                            System.out.println(new StringBuilder().append("Forcing chains size ")
-                                    .append(fcr.getTotalChainLength()).append("/depth ").append(fcr.getChainDepth())
-                                    .append(" found at ").append(start)
-                                    .append(":").toString());
-                            System.out.println(MessageFormat.format("   {0}", fcr));
-                        }
+                if (verbose) {
+                    System.out.println(new StringBuilder().append("Forcing chains size ")
+                            .append(fcr.getTotalChainLength()).append("/depth ").append(fcr.getChainDepth())
+                            .append(" found at ").append(start)
+                            .append(":").toString());
+                    System.out.println(MessageFormat.format("   {0}", fcr));
+                }
 
-                        if (bestFc == null ||
-                                (fcr.getChainDepth() < bestFc.getChainDepth()) ||
-                                ((fcr.getChainDepth() == bestFc.getChainDepth()) && (fcr.getTotalChainLength() < bestFc.getTotalChainLength()))) {
-                            bestFc = fcr;
-                        }
-                    }
-                } else {
-//                    System.out.println("No forcing chain found from " + start);
+                if (bestFc == null ||
+                        (fcr.getChainDepth() < bestFc.getChainDepth()) ||
+                        ((fcr.getChainDepth() == bestFc.getChainDepth()) && (fcr.getTotalChainLength() < bestFc.getTotalChainLength()))) {
+                    bestFc = fcr;
                 }
             }
         }
@@ -465,7 +628,7 @@ public class ForcingChainsEliminator extends Eliminator {
         if (bestFc != null) {
             for (ForcingChainsReason x: remainingFcs.values()) {
                 for (Coord c : x.getRemovedFrom()) {
-                    if (removePossibility(myPuzzle.symbolToSymbolCode(x.getSymbol()), x.getRemovedFrom(), x))
+                    if (removePossibility(myPuzzle.symbolToSymbolCode(x.getSymbol()), x.getRemovedFrom(), (coord, removed) -> x))
                         hasRemoved = true;
                 }
             }
@@ -2,158 +2,196 @@ package ottop.sudoku.solver;
 
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.Coord;
-import ottop.sudoku.explain.Explanation;
+import ottop.sudoku.explain.HiddenGroupEliminationReason;
 import ottop.sudoku.explain.NakedGroupEliminationReason;
 import ottop.sudoku.puzzle.ISudoku;
 
 import java.util.*;
 
+// Naked and hidden subsets (pairs, trios and quads) in the groups.
+//
+// A naked subset is a set of N open cells in a group with only N candidates
+// together: those symbols can be removed from the rest of the group. A hidden
+// subset is a set of N symbols that together have only N positions left in a
+// group: the other candidates can be removed from those cells.
+//
+// Only combinations of open cells (or missing symbols) are enumerated, in
+// order, and a combination is not extended once its candidates (or positions)
+// outnumber the size looked for. Subsets bigger than a quad are not searched:
+// in a group that has all symbols the rest of a naked subset is a hidden subset
+// and the other way around, so with up to 9 open cells one of them is small.
+
 public class NakedGroupEliminator extends Eliminator {
 
-    NakedGroupEliminator(ISudoku myPuzzle, Map<Coord, Set<Integer>> candidatesPerCell, Map<Coord, List<Explanation>> removalReasons) {
-        super(myPuzzle, candidatesPerCell, removalReasons);
+    private static final int MAX_SUBSET_SIZE = 4;
+
+    // Of the group being looked at
+    private int[] openPositions;
+    private int[] openMasks;
+    private int nOpen;
+    private final List<int[]> found = new ArrayList<>(); // {positions, symbol codes}
+
+    NakedGroupEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
     }
 
     public boolean eliminate() {
         boolean updated = false;
 
-        for (AbstractGroup g : myPuzzle.getGroups()) {
-            // create map from sets of possibilities to the coordinates (in this group) that have those (same) possibilities
-            Map<Set<Integer>, Set<Coord>> nakedGroupMap = new LinkedHashMap<>();
-            for (Coord c : g.getCoords()) {
-                if (!myPuzzle.isOccupied(c)) {
-                    Set<Integer> pc = candidatesPerCell.get(c);
-                    Set<Coord> coordSet = nakedGroupMap.computeIfAbsent(pc, k -> new HashSet<>());
-                    coordSet.add(c);
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        int allSymbols = CandidateGrid.allSymbols(myPuzzle.getSymbolCodeRange());
+        for (int groupIndex = 0; groupIndex < groups.length; groupIndex++) {
+            // Subsets only depend on the candidates in the group itself
+            if (!isGroupChanged(groupIndex)) continue;
+            AbstractGroup g = groups[groupIndex];
+
+            int[] cellIndexes = g.getCellIndexes();
+            if (openPositions == null || openPositions.length < cellIndexes.length) {
+                openPositions = new int[cellIndexes.length];
+                openMasks = new int[cellIndexes.length];
+            }
+            nOpen = 0;
+            for (int p = 0; p < cellIndexes.length; p++) {
+                if (!myPuzzle.isOccupied(cellIndexes[p])) {
+                    openPositions[nOpen] = p;
+                    openMasks[nOpen] = candidates.get(cellIndexes[p]);
+                    nOpen++;
                 }
             }
 
-            // find groups of cells that all have the same possibilities, and which is of the same size as the
-            // nr of possibilities: the possibilities can be removed from the rest of the group
-            if (eliminateInGroup(g, nakedGroupMap, false)) updated = true;
-
-            // Extended naked groups are much more expensive to find
-            if (true || !updated) {
-                // Combine elements in this map. For example, if there are entries
-                // {26} --> [a], {27} --> [c], {26} --> [c] can be combined
-                // to a new entry {267} --> [abc]
-                combineNakedGroups(g, nakedGroupMap);
+            if (eliminateNaked(g)) updated = true;
 
-                // Do further elimination (in two steps just to improve reporting)
-                if (eliminateInGroup(g, nakedGroupMap, true)) updated = true;
+            // Only when all symbols have to be in the group
+            if (g.getGroupSize() == myPuzzle.getSymbolCodeRange() - 1) {
+                int missingSymbols = allSymbols & ~getSymbolCodesInGroup(g);
+                if (eliminateHidden(g, groupIndex, missingSymbols)) updated = true;
             }
         }
 
         return updated;
     }
 
-    private boolean eliminateInGroup(AbstractGroup g,
-                                     Map<Set<Integer>, Set<Coord>> nakedGroupMap,
-                                     boolean isExtended) {
+    private boolean eliminateNaked(AbstractGroup g) {
+        found.clear();
+        int maxSize = Math.min(MAX_SUBSET_SIZE, nOpen - 1);
+        for (int size = 2; size <= maxSize; size++) {
+            findNaked(size, 0, 0, 0, 0);
+        }
+
+        // Report the simple ones, where all cells have the same candidates, first
         boolean hasEliminated = false;
+        for (int[] subset : found) {
+            if (isSimple(subset) && removeNaked(g, subset[0], subset[1], false)) hasEliminated = true;
+        }
+        for (int[] subset : found) {
+            if (!isSimple(subset) && removeNaked(g, subset[0], subset[1], true)) hasEliminated = true;
+        }
+        return hasEliminated;
+    }
 
-        for (Map.Entry<Set<Integer>, Set<Coord>> entry : nakedGroupMap.entrySet()) {
-            Set<Integer> nakedGroupSymbolCodes = entry.getKey();
-            Set<Coord> nakedGroupCoords = entry.getValue();
-            Set<String> nakedGroupSymbols = new HashSet<>();
-            for (Integer p : nakedGroupSymbolCodes) {
-                nakedGroupSymbols.add(myPuzzle.symbolCodeToSymbol(p));
-            }
-            if (nakedGroupSymbolCodes.size() > 1 && nakedGroupSymbolCodes.size() == nakedGroupCoords.size()) {
-                for (Coord c : g.getCoords()) {
-                    if (!myPuzzle.isOccupied(c)) {
-                        if (!nakedGroupCoords.contains(c)) {
-
-                            // naked pair symbols to be removed at c but find the
-                            // intersection with the remaining possibilities so only
-                            // really remove the ones not already removed earlier
-                            Set<Integer> currentPossibilities = candidatesPerCell.get(c);
-                            Set<Integer> actualRemovals = new HashSet<>(nakedGroupSymbolCodes);
-                            actualRemovals.retainAll(currentPossibilities);
-
-                            // translate actual removals to symbols
-                            Set<String> actualRemovalSymbols = new HashSet<>();
-                            for (Integer p : actualRemovals) {
-                                actualRemovalSymbols.add(myPuzzle.symbolCodeToSymbol(p));
-                            }
-
-                            if (removePossibilities(actualRemovals, c,
-                                    new NakedGroupEliminationReason(actualRemovalSymbols, c,
-                                            g,
-                                            nakedGroupSymbols, nakedGroupCoords, isExtended))) hasEliminated = true;
-                        }
-                    }
-                }
-            }
+    private void findNaked(int size, int from, int count, int positions, int symbolCodes) {
+        if (count == size) {
+            if (CandidateGrid.popcount(symbolCodes) == size) found.add(new int[]{positions, symbolCodes});
+            return;
+        }
+        for (int i = from; i <= nOpen - (size - count); i++) {
+            int union = symbolCodes | openMasks[i];
+            if (CandidateGrid.popcount(union) > size) continue;
+            findNaked(size, i + 1, count + 1, positions | (1 << openPositions[i]), union);
+        }
+    }
+
+    private boolean isSimple(int[] subset) {
+        for (int i = 0; i < nOpen; i++) {
+            if ((subset[0] & (1 << openPositions[i])) != 0 && openMasks[i] != subset[1]) return false;
         }
+        return true;
+    }
+
+    private boolean removeNaked(AbstractGroup g, int positions, int symbolCodes, boolean isExtended) {
+        Set<Coord> nakedCells = isExplaining() ? toCoords(g, positions) : null;
+        EliminationLog.Reason reason = !isExplaining() ? null : (c, removedCodes) ->
+                new NakedGroupEliminationReason(CandidateGrid.toSymbols(myPuzzle, removedCodes, new HashSet<>()), c,
+                        g,
+                        CandidateGrid.toSymbols(myPuzzle, symbolCodes, new HashSet<>()),
+                        nakedCells, isExtended);
 
+        boolean hasEliminated = false;
+        int[] cellIndexes = g.getCellIndexes();
+        for (int i = 0; i < nOpen; i++) {
+            int p = openPositions[i];
+            if ((positions & (1 << p)) != 0) continue;
+
+            // only really remove the ones not already removed earlier
+            if ((candidates.get(cellIndexes[p]) & symbolCodes) == 0) continue;
+            if (removePossibilities(symbolCodes, g.getCell(p), reason)) hasEliminated = true;
+        }
         return hasEliminated;
     }
 
-    private void combineNakedGroups(AbstractGroup g, Map<Set<Integer>, Set<Coord>> nakedGroupMap) {
-        final int range = (1 << g.getGroupSize()); // range of possibilities for 9 digits: 2^9
-        final int mask = range - 1;
-
-        // Representing the possibilities in a bitmap (9 digits), find out which of
-        // all possible bitmaps (total of 512, 2^9), are a superset of the bitmap of
-        // a set of possibilities. Combine the mapped coordinates of those.
-        Map<Integer, Set<Coord>> newCombinationsMap = new HashMap<>();
-        for (Set<Integer> key : nakedGroupMap.keySet()) { // TODO: loop over entry set instead? Avoid the get later on.
-            int keyAsBitSet = toBitSet(key);
-            for (int counter = 0; counter < range; counter++) {
-                // bitwise operation to verify that all of "key" are contained in the digit set represented by "i"
-                if ((counter | (~keyAsBitSet & mask)) == mask) {
-                    Set<Coord> coords = newCombinationsMap.computeIfAbsent(counter, k -> new HashSet<>());
-                    Set<Coord> originalCoords = nakedGroupMap.get(key); // TODO: get twice can be removed both...
-                    if (originalCoords != null) {
-                        coords.addAll(nakedGroupMap.get(key));
-                    }
-                }
-            }
+    private boolean eliminateHidden(AbstractGroup g, int groupIndex, int missingSymbols) {
+        int nMissing = CandidateGrid.popcount(missingSymbols);
+        int[] symbolCodes = new int[nMissing];
+        int[] symbolPositions = new int[nMissing];
+        int n = 0;
+        for (int s = CandidateGrid.firstSymbol(missingSymbols); s >= 0; s = CandidateGrid.nextSymbol(missingSymbols, s)) {
+            symbolCodes[n] = s;
+            symbolPositions[n] = candidates.getPositions(groupIndex, s);
+            n++;
         }
 
-        // Iterate through the combinations and if they are candidates for naked pair
-        // reduction, add them to the original map.
-        for (Map.Entry<Integer, Set<Coord>> entry : newCombinationsMap.entrySet()) {
-            int possibilitiesAsBitSet = entry.getKey();
-            Set<Coord> coordinates = entry.getValue();
-
-            // Only add the coordinates if the size of the set of coordinates leaves
-            // at least 1 unfilled cell in this group
-            if (coordinates.size() > 1 && coordinates.size() < (g.getGroupSize() - g.getGroupOccupiedSize())) {
-                if (getBitSetSize(possibilitiesAsBitSet) == coordinates.size()) {
-                    nakedGroupMap.put(fromBitSet(possibilitiesAsBitSet), coordinates);
-                }
-            }
+        found.clear();
+        int maxSize = Math.min(MAX_SUBSET_SIZE, nMissing - 1);
+        for (int size = 2; size <= maxSize; size++) {
+            findHidden(symbolCodes, symbolPositions, size, 0, 0, 0, 0);
         }
-    }
 
-    private static int getBitSetSize(int possibilitiesAsBitSet) {
-        int result = 0;
-        while (possibilitiesAsBitSet != 0) {
-            if ((possibilitiesAsBitSet & 1) != 0) result++;
-            possibilitiesAsBitSet = possibilitiesAsBitSet >> 1;
+        boolean hasEliminated = false;
+        for (int[] subset : found) {
+            if (removeOthers(g, subset[0], subset[1])) hasEliminated = true;
         }
-        return result;
+        return hasEliminated;
     }
 
-    private static int toBitSet(Set<Integer> key) {
-        int result = 0;
-        for (int i : key) {
-            result += (1 << (i - 1));
+    private void findHidden(int[] symbolCodes, int[] symbolPositions,
+                            int size, int from, int count, int positions, int hiddenSymbolCodes) {
+        if (count == size) {
+            if (CandidateGrid.popcount(positions) == size) found.add(new int[]{positions, hiddenSymbolCodes});
+            return;
+        }
+        for (int i = from; i <= symbolCodes.length - (size - count); i++) {
+            int union = positions | symbolPositions[i];
+            if (CandidateGrid.popcount(union) > size) continue;
+            findHidden(symbolCodes, symbolPositions, size, i + 1, count + 1,
+                    union, hiddenSymbolCodes | CandidateGrid.bit(symbolCodes[i]));
         }
-        return result;
     }
 
-    private static Set<Integer> fromBitSet(int i) {
-        Set<Integer> result = new HashSet<>();
-        int val = 1;
-        while (i != 0) {
-            if ((i & 1) != 0) result.add(val);
-            i = i >> 1;
-            val++;
+    private boolean removeOthers(AbstractGroup g, int positions, int hiddenSymbolCodes) {
+        Set<Coord> hiddenCells = isExplaining() ? toCoords(g, positions) : null;
+        EliminationLog.Reason reason = !isExplaining() ? null : (c, removedCodes) ->
+                new HiddenGroupEliminationReason(CandidateGrid.toSymbols(myPuzzle, removedCodes, new HashSet<>()), c,
+                        g,
+                        CandidateGrid.toSymbols(myPuzzle, hiddenSymbolCodes, new HashSet<>()),
+                        hiddenCells);
+
+        boolean hasEliminated = false;
+        int[] cellIndexes = g.getCellIndexes();
+        for (int p = 0; p < cellIndexes.length; p++) {
+            if ((positions & (1 << p)) == 0) continue;
+
+            int otherSymbolCodes = candidates.get(cellIndexes[p]) & ~hiddenSymbolCodes;
+            if (otherSymbolCodes == 0) continue;
+            if (removePossibilities(otherSymbolCodes, g.getCell(p), reason)) hasEliminated = true;
         }
-        return result;
+        return hasEliminated;
     }
 
-}
\ No newline at end of file
+    private static Set<Coord> toCoords(AbstractGroup g, int positions) {
+        Set<Coord> coords = new HashSet<>();
+        for (int p = 0; p < g.getGroupSize(); p++) {
+            if ((positions & (1 << p)) != 0) coords.add(g.getCell(p));
+        }
+        return coords;
+    }
+}
@@ -0,0 +1,86 @@
+package ottop.sudoku.solver;
+
+// Limits for a search that can take very long on hard puzzles, like the
+// forcing chains. The search deepens one level at a time, so when the budget
+// runs out it still gives the shortest chains it found so far.
+//
+// After a search this also tells how far it got and whether it was exhaustive,
+// so found everything an unlimited search would have found. By default there
+// are no limits.
+
+public class SearchBudget {
+    private long maxNanos = Long.MAX_VALUE;
+    private long maxNodes = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+
+    // Of the last search
+    private boolean exhaustive = true;
+    private long nodeCount = 0;
+    private int depth = 0;
+    private long nanos = 0;
+
+    public SearchBudget setMaxMillis(long millis) {
+        this.maxNanos = millis * 1_000_000L;
+        return this;
+    }
+
+    // Nodes are the steps of a chain that were followed
+    public SearchBudget setMaxNodes(long nodes) {
+        this.maxNodes = nodes;
+        return this;
+    }
+
+    public SearchBudget setMaxDepth(int depth) {
+        this.maxDepth = depth;
+        return this;
+    }
+
+    public SearchBudget setUnlimited() {
+        maxNanos = Long.MAX_VALUE;
+        maxNodes = Long.MAX_VALUE;
+        maxDepth = Integer.MAX_VALUE;
+        return this;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    void setLastSearch(boolean exhaustive, long nodeCount, int depth, long nanos) {
+        this.exhaustive = exhaustive;
+        this.nodeCount = nodeCount;
+        this.depth = depth;
+        this.nanos = nanos;
+    }
+
+    // False when the last search stopped at one of the limits before it was done
+    public boolean isExhaustive() {
+        return exhaustive;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    // The deepest level the last search looked at
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public String toString() {
+        return String.format("%s search to depth %d, %d nodes in %.1f ms",
+                exhaustive ? "Exhaustive" : "Partial", depth, nodeCount, nanos / 1_000_000.0);
+    }
+}
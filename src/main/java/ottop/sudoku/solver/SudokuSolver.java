@@ -4,7 +4,9 @@ import ottop.sudoku.board.Coord;
 import ottop.sudoku.explain.*;
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.puzzle.ISudoku;
+import ottop.sudoku.reader.SudokuReader;
 
+import java.io.IOException;
 import java.util.*;
 
 // http://www.extremesudoku.info/sudoku.html
@@ -15,29 +17,70 @@ import java.util.*;
 public class SudokuSolver implements Updateable {
     private ISudoku myPuzzle;
 
-    // Map of cell to a set of possible values. The values are the
+    // Bitmask of possible values per cell. The values are the
     // internal representation of the cell symbols.
-    private Map<Coord, Set<Integer>> candidatesPerCell = null;
-    private Map<Coord, Set<Integer>> candidatesPerCellAfterBasicElimination = null;
-    private final Map<Coord, List<Explanation>> eliminationReasons = new HashMap<>();
-
-    // TODO instead of this,
-    // keep a list of Eliminator objects that are used for elimination
-    private List<Eliminator> eliminators = new ArrayList<>();
-
-    private boolean doEliminationNakedPairs;
-    private boolean doEliminationIntersectionRadiation;
-    private boolean doEliminationXWings;
-    private boolean doForcingChains;
+    private CandidateGrid candidates = null;
+    private CandidateGrid candidatesAfterBasicElimination = null;
+    // Why candidates were removed, null when the solver is not explaining. The
+    // explanations are only created for the cell getEliminationReasons asks for.
+    private final EliminationLog eliminationReasons;
+
+    // Names of the built in advanced techniques in the elimination pipeline
+    public static final String INTERSECTION_RADIATION = "Intersection Radiation";
+    public static final String NAKED_GROUPS = "Naked Groups";
+    public static final String X_WINGS = "X-Wings";
+    public static final String X_CHAINS = "X-Chains";
+    public static final String WINGS = "Wings";
+    public static final String UNIQUE_RECTANGLES = "Unique Rectangles";
+    public static final String TEMPLATES = "Templates";
+    public static final String ALMOST_LOCKED_SETS = "Almost Locked Sets";
+    public static final String ALTERNATING_CHAINS = "Alternating Inference Chains";
+    public static final String FORCING_CHAINS = "Forcing Chains";
+
+    // Limits for the forcing chains search, none by default
+    private final SearchBudget forcingChainsBudget = new SearchBudget();
+
+    // Unique rectangles are only valid when the puzzle has exactly one solution.
+    // Checked by brute force the first time they run, null until then.
+    private Boolean isUniqueSolution = null;
+
+    // Registered in order of increasing cost, the expected cost (ns) is just a first guess
+    private final EliminatorPipeline eliminators = new EliminatorPipeline()
+            .register(INTERSECTION_RADIATION, IntersectionRadiationEliminator::new, 20_000)
+            .register(NAKED_GROUPS, NakedGroupEliminator::new, 100_000)
+            .register(X_WINGS, XWingEliminator::new, 200_000)
+            .register(X_CHAINS, XChainEliminator::new, 200_000)
+            .register(WINGS, WingEliminator::new, 200_000)
+            .register(UNIQUE_RECTANGLES, (p, candidates, reasons) ->
+                    new UniqueRectangleEliminator(p, candidates, reasons, isUniqueSolution()), 200_000)
+            .register(TEMPLATES, TemplateEliminator::new, 1_000_000)
+            .register(ALMOST_LOCKED_SETS, AlmostLockedSetEliminator::new, 2_000_000)
+            .register(ALTERNATING_CHAINS, AlternatingChainEliminator::new, 2_000_000)
+            .register(FORCING_CHAINS, (p, candidates, reasons) ->
+                    new ForcingChainsEliminator(p, candidates, reasons, forcingChainsBudget), 20_000_000);
+
     private boolean earlyStopping = true;
+    private boolean bruteForceFallback = false;
     private boolean verbose = false;
 
     public SudokuSolver(ISudoku p) {
+        this(p, true);
+    }
+
+    // Without explanations the eliminators only remove candidates and do not
+    // create or keep any reasons for that. Much faster when only the result
+    // matters, but getEliminationReasons will then only give the move itself.
+    public SudokuSolver(ISudoku p, boolean withExplanations) {
         myPuzzle = p;
+        eliminationReasons = withExplanations ? new EliminationLog(p) : null;
         p.setSolver(this);
         setSimplest();
     }
 
+    public boolean isExplaining() {
+        return eliminationReasons != null;
+    }
+
     public SudokuSolver setVerbose() {
         return setVerbose(true);
     }
@@ -52,8 +95,8 @@ public class SudokuSolver implements Updateable {
     }
 
     public SudokuSolver setEliminateNakedPairs(boolean onOff) {
-        doEliminationNakedPairs = onOff;
-        candidatesPerCell = null; // flags that this cache needs reinitialization
+        eliminators.setEnabled(NAKED_GROUPS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
@@ -62,8 +105,8 @@ public class SudokuSolver implements Updateable {
     }
 
     public SudokuSolver setEliminateIntersectionRadiation(boolean onOff) {
-        doEliminationIntersectionRadiation = onOff;
-        candidatesPerCell = null; // flags that this cache needs reinitialization
+        eliminators.setEnabled(INTERSECTION_RADIATION, onOff);
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
@@ -72,8 +115,73 @@ public class SudokuSolver implements Updateable {
     }
 
     public SudokuSolver setEliminateXWings(boolean onOff) {
-        doEliminationXWings = onOff;
-        candidatesPerCell = null; // flags that this cache needs reinitialization
+        eliminators.setEnabled(X_WINGS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // Simple coloring, skyscrapers, 2-string kites and longer X-chains
+    public SudokuSolver setEliminateXChains() {
+        return setEliminateXChains(true);
+    }
+
+    public SudokuSolver setEliminateXChains(boolean onOff) {
+        eliminators.setEnabled(X_CHAINS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // XY-Wings, XYZ-Wings and W-Wings
+    public SudokuSolver setEliminateWings() {
+        return setEliminateWings(true);
+    }
+
+    public SudokuSolver setEliminateWings(boolean onOff) {
+        eliminators.setEnabled(WINGS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // Only eliminates anything when the puzzle has exactly one solution
+    public SudokuSolver setEliminateUniqueRectangles() {
+        return setEliminateUniqueRectangles(true);
+    }
+
+    public SudokuSolver setEliminateUniqueRectangles(boolean onOff) {
+        eliminators.setEnabled(UNIQUE_RECTANGLES, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // Everything there is for each symbol on its own, subsumes X-Wings and X-Chains
+    public SudokuSolver setEliminateTemplates() {
+        return setEliminateTemplates(true);
+    }
+
+    public SudokuSolver setEliminateTemplates(boolean onOff) {
+        eliminators.setEnabled(TEMPLATES, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // ALS-XZ and ALS-XY-Wings
+    public SudokuSolver setEliminateAlmostLockedSets() {
+        return setEliminateAlmostLockedSets(true);
+    }
+
+    public SudokuSolver setEliminateAlmostLockedSets(boolean onOff) {
+        eliminators.setEnabled(ALMOST_LOCKED_SETS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    public SudokuSolver setEliminateAlternatingChains() {
+        return setEliminateAlternatingChains(true);
+    }
+
+    public SudokuSolver setEliminateAlternatingChains(boolean onOff) {
+        eliminators.setEnabled(ALTERNATING_CHAINS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
@@ -82,95 +190,131 @@ public class SudokuSolver implements Updateable {
     }
 
     public SudokuSolver setEliminateForcingChains(boolean onOff) {
-        doForcingChains = onOff;
-        candidatesPerCell = null; // flags that this cache needs reinitialization
+        eliminators.setEnabled(FORCING_CHAINS, onOff);
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
+    // Bounds the time and depth of the forcing chains search. The budget also
+    // reports whether its last search was exhaustive.
+    public SearchBudget getForcingChainsBudget() {
+        return forcingChainsBudget;
+    }
+
     public SudokuSolver setSimplest() {
-        setEliminateNakedPairs(false);
-        setEliminateIntersectionRadiation(false);
-        setEliminateXWings(false);
-        setEliminateForcingChains(false);
+        eliminators.setAllEnabled(false);
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
     public SudokuSolver setSmartest() {
-        setEliminateNakedPairs(true);
-        setEliminateIntersectionRadiation(true);
-        setEliminateXWings(true);
-        setEliminateForcingChains(true);
+        eliminators.setAllEnabled(true);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // Adds (or replaces) an advanced technique, tried after the singles like the
+    // built in ones. It is enabled right away.
+    public SudokuSolver addEliminator(String name, EliminatorFactory factory) {
+        eliminators.register(name, factory);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    public SudokuSolver setEliminator(String name, boolean onOff) {
+        eliminators.setEnabled(name, onOff);
+        candidates = null; // flags that this cache needs reinitialization
+        return this;
+    }
+
+    // Try the techniques in order of measured cost per hit instead of the order
+    // they were registered in
+    public SudokuSolver setAdaptiveOrdering(boolean onOff) {
+        eliminators.setAdaptive(onOff);
+        return this;
+    }
+
+    public EliminatorPipeline getEliminatorPipeline() {
+        return eliminators;
+    }
+
+    // Let solve() finish with brute force when the techniques get stuck
+    public SudokuSolver setBruteForceFallback() {
+        return setBruteForceFallback(true);
+    }
+
+    public SudokuSolver setBruteForceFallback(boolean onOff) {
+        this.bruteForceFallback = onOff;
         return this;
     }
 
     public SudokuSolver setEarlyStop(boolean onOff) {
         this.earlyStopping = onOff;
-        candidatesPerCell = null; // flags that this cache needs reinitialization
+        candidates = null; // flags that this cache needs reinitialization
         return this;
     }
 
     private void recalculateCandidates()
     {
-        candidatesPerCell = new HashMap<>();
+        if (candidatesAfterBasicElimination == null) {
+            candidatesAfterBasicElimination = new CandidateGrid(myPuzzle);
+        }
+        candidates = new CandidateGrid(myPuzzle);
 
         // Clear out the reasons for the non-occupied cells
         // TODO: this may not work out for undo/redo sequences
-        for (Coord c: myPuzzle.getAllCells()) {
-            if (!myPuzzle.isOccupied(c)) {
-                eliminationReasons.put(c, null);
+        if (eliminationReasons != null) {
+            for (int i = 0; i < myPuzzle.getAllCells().length; i++) {
+                if (!myPuzzle.isOccupied(i)) {
+                    eliminationReasons.clear(i);
+                }
             }
         }
 
         // TODO maybe fill all cell candidates with all symbols
 
         Eliminator simpleEliminator =
-                new BasicEliminationEliminator(myPuzzle, candidatesPerCell, eliminationReasons);
+                new BasicEliminationEliminator(myPuzzle, candidates, eliminationReasons);
         simpleEliminator.setVerbose(verbose);
 
         boolean hasEliminated = simpleEliminator.eliminate();
 
         // Keep a basic elimination map for nice display of the eliminated possibilities
-        candidatesPerCellAfterBasicElimination = new HashMap<>();
-        for (Map.Entry<Coord, Set<Integer>> e: candidatesPerCell.entrySet()) {
-            candidatesPerCellAfterBasicElimination.put(e.getKey(), new TreeSet(e.getValue()));
-        }
+        candidatesAfterBasicElimination.copyFrom(candidates);
 
         if (!hasEliminated | !earlyStopping) {
             oneRoundOfCandidateElimination();
         }
     }
 
-    private boolean oneRoundOfCandidateElimination() {
-        // Basic radiation will be done always
+    // A symbol was placed: remove it from the peers of that cell but keep everything
+    // that was eliminated before, all of that is still valid.
+    private void applyPlacement(int cellIndex) {
+        BasicEliminationEliminator simpleEliminator =
+                new BasicEliminationEliminator(myPuzzle, candidates, eliminationReasons);
+        simpleEliminator.setVerbose(verbose);
 
-        boolean hasEliminated = false;
+        simpleEliminator.eliminatePlacement(cellIndex);
 
-        if ((!hasEliminated || !earlyStopping) && doEliminationIntersectionRadiation) {
-            Eliminator e = new IntersectionRadiationEliminator(myPuzzle, candidatesPerCell, eliminationReasons);
-            e.setVerbose(verbose);
-            if (e.eliminate()) hasEliminated = true;
+        int symbolCode = myPuzzle.getSymbolCodeAtCell(cellIndex);
+        candidatesAfterBasicElimination.set(cellIndex, 0);
+        for (int peer : myPuzzle.getPeers(cellIndex)) {
+            candidatesAfterBasicElimination.remove(peer, symbolCode);
         }
-        if ((!hasEliminated || !earlyStopping) && doEliminationNakedPairs) {
-            Eliminator e = new NakedGroupEliminator(myPuzzle, candidatesPerCell, eliminationReasons);
-            e.setVerbose(verbose);
-            if (e.eliminate()) hasEliminated = true;
-        }
-        if ((!hasEliminated || !earlyStopping) && doEliminationXWings) {
-            Eliminator e = new XWingEliminator(myPuzzle, candidatesPerCell, eliminationReasons);
-            e.setVerbose(verbose);
-            if (e.eliminate()) hasEliminated = true;
-        }
-        if ((!hasEliminated || !earlyStopping) && doForcingChains) {
-            Eliminator e = new ForcingChainsEliminator(myPuzzle, candidatesPerCell, eliminationReasons);
-            e.setVerbose(verbose);
-            if (e.eliminate()) hasEliminated = true;
+
+        // Same as a full recalculation, which always eliminates something once there is a symbol on the board
+        if (!earlyStopping) {
+            oneRoundOfCandidateElimination();
         }
+    }
 
-        return hasEliminated;
+    private boolean oneRoundOfCandidateElimination() {
+        // Basic radiation will be done always
+        return eliminators.eliminate(myPuzzle, candidates, eliminationReasons, earlyStopping, verbose);
     }
 
     public Map<Coord, String> getAllNakedSingles() {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
         return getNakedSingles(true);
     }
@@ -184,13 +328,14 @@ public class SudokuSolver implements Updateable {
     }
 
     private String getNakedSingleAt(Coord coord) {
-        if (!myPuzzle.isOccupied(coord)) {
-            Set<Integer> cellPossibilities = candidatesPerCell.get(coord);
-            if (cellPossibilities != null) {
-                if (cellPossibilities.size() == 1) {
-                    Integer symbolCode = cellPossibilities.iterator().next();
-                    return myPuzzle.symbolCodeToSymbol(symbolCode);
-                }
+        return getNakedSingleAt(myPuzzle.getCellIndex(coord));
+    }
+
+    private String getNakedSingleAt(int cellIndex) {
+        if (!myPuzzle.isOccupied(cellIndex)) {
+            int cellPossibilities = candidates.get(cellIndex);
+            if (CandidateGrid.popcount(cellPossibilities) == 1) {
+                return myPuzzle.symbolCodeToSymbol(CandidateGrid.lowestSymbol(cellPossibilities));
             }
         }
         return null;
@@ -198,10 +343,11 @@ public class SudokuSolver implements Updateable {
 
     private Map<Coord, String> getNakedSingles(boolean all) {
         Map<Coord, String> result = new TreeMap<>();
-        for (Coord coord: myPuzzle.getAllCells()) {
-            String symbol = getNakedSingleAt(coord);
+        Coord[] allCells = myPuzzle.getAllCells();
+        for (int i = 0; i < allCells.length; i++) {
+            String symbol = getNakedSingleAt(i);
             if (symbol != null) {
-                result.put(coord, symbol);
+                result.put(allCells[i], symbol);
                 if (!all) return result;
             }
         }
@@ -209,57 +355,88 @@ public class SudokuSolver implements Updateable {
     }
 
     public Map<Coord, Map.Entry<String, List<AbstractGroup>>> getAllUniqueValues() {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
-        return getUniqueValues(true, myPuzzle.getGroups());
+        return getUniqueValues(true);
     }
 
     private Map.Entry<Coord, Map.Entry<String, List<AbstractGroup>>> getFirstUniqueValue() {
-        Map<Coord, Map.Entry<String, List<AbstractGroup>>> results =
-                getUniqueValues(false, myPuzzle.getGroups());
+        Map<Coord, Map.Entry<String, List<AbstractGroup>>> results = getUniqueValues(false);
         if (results.size() >= 1) {
             return results.entrySet().iterator().next();
         }
         return null;
     }
 
-    // TODO: this is not super efficient - will consider too many coordinates
+    // Unique value at this cell, with all the groups it is unique in
     private Map.Entry<String, List<AbstractGroup>> getUniqueValueAt(Coord c) {
-        Map<Coord, Map.Entry<String, List<AbstractGroup>>> uniqueValues =
-                getUniqueValues(false, myPuzzle.getBuddyGroups(c));
-        if (uniqueValues != null && uniqueValues.size()>0) {
-            Map.Entry<String, List<AbstractGroup>> uniqueValue = uniqueValues.get(c);
-            return uniqueValue;
+        int cellIndex = myPuzzle.getCellIndex(c);
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        int[] groupIndexes = myPuzzle.getTopology().getBuddyGroupIndexes(cellIndex);
+        int[] groupPositions = myPuzzle.getTopology().getBuddyGroupPositions(cellIndex);
+        Map.Entry<String, List<AbstractGroup>> result = null;
+        int resultSymbolCode = 0;
+        for (int j = 0; j < groupIndexes.length; j++) {
+            int uniqueSymbolCodes = getUniqueSymbolCodes(groupIndexes[j], groupPositions[j], cellIndex);
+            if (CandidateGrid.popcount(uniqueSymbolCodes) == 1) {
+                int symbolCode = CandidateGrid.lowestSymbol(uniqueSymbolCodes);
+                if (result == null) {
+                    resultSymbolCode = symbolCode;
+                    result = new AbstractMap.SimpleEntry<>(myPuzzle.symbolCodeToSymbol(symbolCode), new ArrayList<>());
+                }
+                if (symbolCode == resultSymbolCode) {
+                    result.getValue().add(groups[groupIndexes[j]]);
+                }
+            }
         }
-        return null;
+        return result;
+    }
+
+    // Symbols that in this group can only go at the given position, which is
+    // that of the given cell
+    private int getUniqueSymbolCodes(int groupIndex, int position, int cellIndex) {
+        int cellCandidates = candidates.get(cellIndex);
+        int positionBit = 1 << position;
+        int unique = 0;
+        for (int s = CandidateGrid.firstSymbol(cellCandidates); s >= 0; s = CandidateGrid.nextSymbol(cellCandidates, s)) {
+            if (candidates.getPositions(groupIndex, s) == positionBit) {
+                unique |= CandidateGrid.bit(s);
+            }
+        }
+        return unique;
     }
 
-    private Map<Coord, Map.Entry<String, List<AbstractGroup>>> getUniqueValues(boolean all, AbstractGroup[] groups) {
+    // Hidden singles: symbols that have only one position left in a group. These
+    // are looked up in the position masks of the candidates, by group then by
+    // position in the group.
+    private Map<Coord, Map.Entry<String, List<AbstractGroup>>> getUniqueValues(boolean all) {
         Map<Coord, Map.Entry<String, List<AbstractGroup>>> result = new TreeMap<>();
 
-        for (AbstractGroup g: groups) {
-            for (Coord c: g.getCoords()) {
-                if (!myPuzzle.isOccupied(c)) {
-                    Set<Integer> remainingPossibilities = new HashSet<>(candidatesPerCell.get(c));
-                    for (Coord otherCell : g.getCoords()) {
-                        if (!myPuzzle.isOccupied(otherCell)) {
-                            if (!otherCell.equals(c)) {
-                                remainingPossibilities.removeAll(candidatesPerCell.get(otherCell));
-                            }
-                        }
-                    }
-                    if (remainingPossibilities.size() == 1) {
-                        Integer symbolCode = remainingPossibilities.iterator().next();
-
-                        if (!result.containsKey(c)) {
-                            result.put(c, new AbstractMap.SimpleEntry<>(myPuzzle.symbolCodeToSymbol(symbolCode),
-                                    new ArrayList<>()));
-                        }
-                        result.get(c).getValue().add(g);
-//                        recordEliminationReason(c, new UniqueValueSolution(myPuzzle.symbolCodeToSymbol(symbolCode), c,
-//                                result.get(c).getValue()));
-                        if (!all) return result;
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        int symbolCodeRange = myPuzzle.getSymbolCodeRange();
+        for (int g = 0; g < groups.length; g++) {
+            int singlePositions = 0;
+            for (int s = 1; s < symbolCodeRange; s++) {
+                int positions = candidates.getPositions(g, s);
+                if ((positions & (positions - 1)) == 0) {
+                    singlePositions |= positions;
+                }
+            }
+            int[] groupCells = groups[g].getCellIndexes();
+            for (int rest = singlePositions; rest != 0; rest &= rest - 1) {
+                int p = Integer.numberOfTrailingZeros(rest);
+                int i = groupCells[p];
+                int uniqueSymbolCodes = getUniqueSymbolCodes(g, p, i);
+                if (CandidateGrid.popcount(uniqueSymbolCodes) == 1) {
+                    int symbolCode = CandidateGrid.lowestSymbol(uniqueSymbolCodes);
+                    Coord c = myPuzzle.getAllCells()[i];
+
+                    if (!result.containsKey(c)) {
+                        result.put(c, new AbstractMap.SimpleEntry<>(myPuzzle.symbolCodeToSymbol(symbolCode),
+                                new ArrayList<>()));
                     }
+                    result.get(c).getValue().add(groups[g]);
+                    if (!all) return result;
                 }
             }
         }
@@ -269,7 +446,7 @@ public class SudokuSolver implements Updateable {
 
 
     public Map.Entry<Coord, String> nextMove(SolveStats stats) {
-        if (candidatesPerCell == null) {
+        if (candidates == null) {
             recalculateCandidates();
         }
 
@@ -304,7 +481,7 @@ public class SudokuSolver implements Updateable {
 
     // TODO: this is ONLY used in tests right now - consider moving there
     public boolean solve() {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
         SolveStats stats = new SolveStats();
         while (!myPuzzle.isComplete() && !myPuzzle.isInconsistent()) {
@@ -312,6 +489,8 @@ public class SudokuSolver implements Updateable {
 
             if (nextMove != null) {
                 myPuzzle.doMove(nextMove.getKey(), nextMove.getValue());
+            } else if (bruteForceFallback) {
+                return solveByBruteForce();
             } else {
                 return false;
             }
@@ -319,13 +498,23 @@ public class SudokuSolver implements Updateable {
         return myPuzzle.isSolved();
     }
 
+    private boolean solveByBruteForce() {
+        BacktrackingSolver bruteForce = new BacktrackingSolver(myPuzzle);
+        if (!bruteForce.solve()) return false;
+
+        for (Map.Entry<Coord, String> move : bruteForce.getSolution(myPuzzle).entrySet()) {
+            myPuzzle.doMove(move.getKey(), move.getValue());
+        }
+        return myPuzzle.isSolved();
+    }
+
     // Add moves on the fly if there are any
     public List<Explanation> getEliminationReasons(Coord c) {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
         List<Explanation> reasonsPlusCandidateMove = new ArrayList<>();
-        if (eliminationReasons.get(c) != null) {
-            reasonsPlusCandidateMove.addAll(eliminationReasons.get(c));
+        if (eliminationReasons != null && eliminationReasons.hasReasons(myPuzzle.getCellIndex(c))) {
+            reasonsPlusCandidateMove.addAll(eliminationReasons.getExplanations(myPuzzle.getCellIndex(c)));
         }
         String symbol = getNakedSingleAt(c);
         if (symbol != null) {
@@ -340,11 +529,17 @@ public class SudokuSolver implements Updateable {
         return reasonsPlusCandidateMove;
     }
 
+    private boolean isUniqueSolution() {
+        // Moves can only take solutions away, so a unique solution stays unique
+        if (isUniqueSolution == null) isUniqueSolution = hasUniqueSolution(myPuzzle);
+        return isUniqueSolution;
+    }
+
     // Alternatively: just solve with standard recursion. Nr of branches is complexity score.
     public static int assessDifficulty(ISudoku p) {
         ISudoku shadowPuzzle = p.clone(); // clone should not be necessary at all
         //System.out.println("Difficulty " + p.getName());
-        SudokuSolver sv = new SudokuSolver(shadowPuzzle);
+        SudokuSolver sv = new SudokuSolver(shadowPuzzle); // rating needs the explanations
         SolveStats s = new SolveStats();
         sv.setSmartest().setEarlyStop(true);//.setEliminateForcingChains(false);
         int maxReasonLevel = -1;
@@ -380,25 +575,62 @@ public class SudokuSolver implements Updateable {
     }
 
 
+    // Number of solutions of the puzzle, but stops counting at 'limit'. With a
+    // limit of 2 this tells if a puzzle has no, a unique or multiple solutions.
+    public static int countSolutions(ISudoku p, int limit) {
+        return new BacktrackingSolver(p).countSolutions(limit);
+    }
+
+    public static boolean hasUniqueSolution(ISudoku p) {
+        return countSolutions(p, 2) == 1;
+    }
+
+    // Counts the solutions (up to 'limit') of every puzzle of the reader, by
+    // puzzle name. Puzzles of the same type share one brute force solver.
+    public static Map<String, Integer> countSolutions(SudokuReader reader, int limit) throws IOException {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        BacktrackingSolver bruteForce = null;
+        while (reader.hasNext()) {
+            ISudoku p = reader.next();
+            if (bruteForce == null || !bruteForce.isForTopologyOf(p)) {
+                bruteForce = new BacktrackingSolver(p);
+            } else {
+                bruteForce.load(p);
+            }
+            result.put(p.getName(), bruteForce.countSolutions(limit));
+        }
+        return result;
+    }
+
 //    public PossibilitiesContainer getPossibilitiesContainer() {
 //        return possibilitiesContainer;
 //    }
 
     public Set<Integer> getCandidatesAtCell(Coord c) {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
-        return candidatesPerCell.get(c);
+        return CandidateGrid.toSet(candidates.get(c));
     }
 
     public Set<Integer> getCandidatesAtCellAfterBasicElimination(Coord c) {
-        if (candidatesPerCell == null) recalculateCandidates();
+        if (candidates == null) recalculateCandidates();
 
-        return candidatesPerCellAfterBasicElimination.get(c);
+        return CandidateGrid.toSet(candidatesAfterBasicElimination.get(c));
     }
 
     @Override
     public void update() {
+        isUniqueSolution = null; // the puzzle may have changed in any way
         recalculateCandidates();
     }
 
+    @Override
+    public void update(Coord placedAt) {
+        if (candidates == null) {
+            recalculateCandidates();
+        } else {
+            applyPlacement(myPuzzle.getCellIndex(placedAt));
+        }
+    }
+
 }
@@ -0,0 +1,202 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.board.PuzzleTopology;
+import ottop.sudoku.explain.TemplateEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Templates (pattern overlay).
+//
+// A template is one of the ways to place a symbol everywhere: one cell in every
+// row, exactly one in every complete group and at most one in the others. A
+// standard 9x9 has 46656 of them. A template fits a symbol when it has all cells
+// where the symbol is placed and otherwise only cells where it is a candidate.
+// Cells that are in none of the fitting templates cannot have the symbol. This
+// makes every elimination there is for one symbol on its own, so it covers all
+// fish and single symbol chains.
+//
+// The templates only depend on the topology, so they are generated once for every
+// type of puzzle. Each round they are filtered by the columns a symbol can be in,
+// as a bitmask per row. They are generated row by row, so templates that start
+// with the same rows are next to each other, and when a row does not fit the
+// ones that share it are skipped in one go.
+
+public class TemplateEliminator extends Eliminator {
+    private static final int MAX_TEMPLATES = 500_000; // topologies with more are not done
+    private static final Map<PuzzleTopology, TemplateTable> templatesByTopology = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+
+    // All templates of a topology, by the column in every row
+    private static class TemplateTable {
+        final int size;
+        final byte[] columns; // of template t in row y at t * height + y
+        final int[][] skip; // by row, the next template that differs in that row or before
+
+        TemplateTable(int size, byte[] columns, int height) {
+            this.size = size;
+            this.columns = columns;
+            skip = new int[height][size];
+            for (int t = size - 1; t >= 0; t--) {
+                boolean isSame = t + 1 < size;
+                for (int y = 0; y < height; y++) {
+                    isSame = isSame && columns[t * height + y] == columns[(t + 1) * height + y];
+                    skip[y][t] = isSame ? skip[y][t + 1] : t + 1;
+                }
+            }
+        }
+    }
+
+    TemplateEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.width = myPuzzle.getWidth();
+        this.height = myPuzzle.getHeight();
+    }
+
+    public boolean eliminate() {
+        TemplateTable templates = getTemplates(myPuzzle.getTopology());
+        boolean updated = false;
+        for (int symbolCode = 1; symbolCode < myPuzzle.getSymbolCodeRange(); symbolCode++) {
+            // Only depends on where this symbol is a candidate
+            if (!isSymbolChanged(symbolCode)) continue;
+
+            // Columns by row, just the one where it is placed if it is
+            int[] allowed = new int[height];
+            int[] placed = new int[height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = myPuzzle.getTopology().getCellIndex(x, y);
+                    if (myPuzzle.isOccupied(i)) {
+                        if (myPuzzle.getSymbolCodeAtCell(i) == symbolCode) placed[y] = 1 << x;
+                    } else if (candidates.contains(i, symbolCode)) {
+                        allowed[y] |= 1 << x;
+                    }
+                }
+                if (placed[y] != 0) allowed[y] = placed[y];
+            }
+
+            int[] union = new int[height];
+            int[] common = new int[height];
+            Arrays.fill(common, -1);
+            int nFitting = 0;
+            int t = 0;
+            while (t < templates.size) {
+                int y = 0;
+                while (y < height && (allowed[y] & (1 << templates.columns[t * height + y])) != 0) y++;
+                if (y < height) {
+                    t = templates.skip[y][t];
+                    continue;
+                }
+                for (y = 0; y < height; y++) {
+                    union[y] |= 1 << templates.columns[t * height + y];
+                    common[y] &= 1 << templates.columns[t * height + y];
+                }
+                nFitting++;
+                t++;
+            }
+            if (nFitting == 0) continue; // the puzzle has no solution
+
+            Set<Coord> removedFrom = new TreeSet<>();
+            Set<Coord> fixedCells = new TreeSet<>();
+            for (int y = 0; y < height; y++) {
+                if (placed[y] != 0) continue;
+                for (int x = 0; x < width; x++) {
+                    Coord c = myPuzzle.getAllCells()[myPuzzle.getTopology().getCellIndex(x, y)];
+                    if ((allowed[y] & ~union[y] & (1 << x)) != 0) removedFrom.add(c);
+                    if ((common[y] & (1 << x)) != 0) fixedCells.add(c);
+                }
+            }
+            if (removedFrom.isEmpty()) continue;
+
+            String symbol = myPuzzle.symbolCodeToSymbol(symbolCode);
+            int n = nFitting;
+            if (removePossibility(symbolCode, removedFrom, !isExplaining() ? null : (coord, removed) ->
+                    new TemplateEliminationReason(symbol, coord, n, fixedCells))) {
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    // All templates, none when there are too many
+    private static TemplateTable getTemplates(PuzzleTopology topology) {
+        return templatesByTopology.computeIfAbsent(topology, TemplateEliminator::generateTemplates);
+    }
+
+    private static TemplateTable generateTemplates(PuzzleTopology topology) {
+        int nWords = PeerTable.wordCount(topology.getCellCount());
+        List<long[]> completeGroups = new ArrayList<>();
+        for (AbstractGroup g : topology.getGroups()) {
+            if (g.getGroupSize() != topology.getWidth()) continue;
+            long[] cells = new long[nWords];
+            for (int i : g.getCellIndexes()) cells[i >> 6] |= 1L << i;
+            completeGroups.add(cells);
+        }
+        TemplateGenerator generator = new TemplateGenerator(topology, nWords, completeGroups);
+        generator.generate(0, new long[nWords]);
+        if (generator.size > MAX_TEMPLATES) return new TemplateTable(0, new byte[0], topology.getHeight());
+        return new TemplateTable(generator.size,
+                Arrays.copyOf(generator.columns, generator.size * topology.getHeight()), topology.getHeight());
+    }
+
+    // Row by row, a cell that does not see any of the ones before
+    private static class TemplateGenerator {
+        private final PuzzleTopology topology;
+        private final int nWords;
+        private final List<long[]> completeGroups;
+        private final byte[] template;
+        private final long[] chosen;
+        private byte[] columns;
+        private int size = 0;
+
+        TemplateGenerator(PuzzleTopology topology, int nWords, List<long[]> completeGroups) {
+            this.topology = topology;
+            this.nWords = nWords;
+            this.completeGroups = completeGroups;
+            this.template = new byte[topology.getHeight()];
+            this.chosen = new long[nWords];
+            this.columns = new byte[1024 * topology.getHeight()];
+        }
+
+        void generate(int y, long[] seen) {
+            if (size > MAX_TEMPLATES) return;
+            if (y == topology.getHeight()) {
+                if (isInAllGroups()) add();
+                return;
+            }
+            for (int x = 0; x < topology.getWidth(); x++) {
+                int i = topology.getCellIndex(x, y);
+                if ((seen[i >> 6] & (1L << i)) != 0) continue;
+                long[] peers = topology.getPeerTable().getPeerMask(i);
+                long[] nextSeen = seen.clone();
+                for (int w = 0; w < nWords; w++) nextSeen[w] |= peers[w];
+                template[y] = (byte) x;
+                chosen[i >> 6] |= 1L << i;
+                generate(y + 1, nextSeen);
+                chosen[i >> 6] &= ~(1L << i);
+            }
+        }
+
+        private boolean isInAllGroups() {
+            for (long[] groupCells : completeGroups) {
+                int n = 0;
+                for (int w = 0; w < nWords; w++) n += Long.bitCount(chosen[w] & groupCells[w]);
+                if (n != 1) return false;
+            }
+            return true;
+        }
+
+        private void add() {
+            int height = template.length;
+            if ((size + 1) * height > columns.length) columns = Arrays.copyOf(columns, 2 * columns.length);
+            System.arraycopy(template, 0, columns, size * height, height);
+            size++;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.board.PuzzleTopology;
+import ottop.sudoku.explain.UniqueRectangleEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Unique Rectangles. Only valid for puzzles with exactly one solution, so this
+// does nothing unless the solver has checked that.
+//
+// Four open cells on the corners of a rectangle, where every group has either
+// none or two of them. If all four could only be a or b, whatever solution
+// there is, the a's and b's could be swapped and give another one. So the
+// other candidates ("roof") of the corners cannot all go:
+//
+// Type 1: three corners are just {a, b}, the fourth cannot be a or b.
+// Type 2: the other two corners have one extra candidate c, the same in both.
+//         One of them is c, so c can be removed from the cells that see both.
+// Type 3: the extras of the two roof corners act as one cell that, together
+//         with other cells of a group they share, forms a naked subset.
+// Type 4: a has to be in one of the roof corners in a group they share. Then
+//         neither of them can be b.
+// Hidden: one corner is just {a, b} and at the opposite corner a only has the
+//         rectangle in both directions. That opposite corner cannot be b.
+//
+// The rectangles only depend on the topology, so they are found only once for
+// every type of puzzle. Corners are numbered 0 and 1 in the first row, 2 and 3
+// in the second, so 0-3 and 1-2 are the diagonals.
+
+public class UniqueRectangleEliminator extends Eliminator {
+    private static final Map<PuzzleTopology, int[][]> rectanglesByTopology = new ConcurrentHashMap<>();
+    private static final int MAX_SUBSET_SIZE = 3; // other cells in the naked subset of type 3
+
+    private final PeerTable peerTable;
+    private final int nWords;
+    private final boolean isUniqueSolution;
+
+    UniqueRectangleEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons,
+                              boolean isUniqueSolution) {
+        super(myPuzzle, candidates, removalReasons);
+        this.isUniqueSolution = isUniqueSolution;
+        this.peerTable = myPuzzle.getTopology().getPeerTable();
+        this.nWords = PeerTable.wordCount(myPuzzle.getAllCells().length);
+    }
+
+    public boolean eliminate() {
+        if (!isUniqueSolution) return false;
+
+        // Depends on all of the candidates
+        if (!isAnySymbolChanged()) return false;
+
+        boolean updated = false;
+        int[] masks = new int[4];
+        for (int[] corners : getRectangles(myPuzzle.getTopology())) {
+            boolean isOpen = true;
+            int common = -1;
+            for (int k = 0; k < 4 && isOpen; k++) {
+                isOpen = !myPuzzle.isOccupied(corners[k]);
+                masks[k] = candidates.get(corners[k]);
+                common &= masks[k];
+            }
+            if (!isOpen || CandidateGrid.popcount(common) < 2) continue;
+
+            for (int a = CandidateGrid.firstSymbol(common); a >= 0; a = CandidateGrid.nextSymbol(common, a)) {
+                for (int b = CandidateGrid.nextSymbol(common, a); b >= 0; b = CandidateGrid.nextSymbol(common, b)) {
+                    if (eliminate(corners, masks, a, b)) {
+                        updated = true;
+                        for (int k = 0; k < 4; k++) masks[k] = candidates.get(corners[k]);
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private boolean eliminate(int[] corners, int[] masks, int a, int b) {
+        int pair = CandidateGrid.bit(a) | CandidateGrid.bit(b);
+        if ((masks[0] & masks[1] & masks[2] & masks[3] & pair) != pair) return false;
+
+        int floor = 0; // corners that are just {a, b}
+        for (int k = 0; k < 4; k++) {
+            if (masks[k] == pair) floor |= 1 << k;
+        }
+        int nFloor = Integer.bitCount(floor);
+        if (nFloor == 4) return false; // no unique solution, or none at all
+
+        boolean updated = false;
+        if (nFloor == 3) {
+            int roof = Integer.numberOfTrailingZeros(~floor & 0xF);
+            if (removePossibilities(pair, corners[roof], "Type 1", corners, pair, null)) updated = true;
+        } else if (nFloor == 2) {
+            int roof1 = Integer.numberOfTrailingZeros(~floor & 0xF);
+            int roof2 = 31 - Integer.numberOfLeadingZeros(~floor & 0xF);
+            int extra1 = masks[roof1] & ~pair;
+            int extra2 = masks[roof2] & ~pair;
+            if (extra1 == extra2 && CandidateGrid.popcount(extra1) == 1) {
+                if (eliminateType2(corners, pair, roof1, roof2, CandidateGrid.lowestSymbol(extra1))) updated = true;
+            }
+            for (int g : getSharedGroups(corners[roof1], corners[roof2])) {
+                if (eliminateType3(corners, pair, g, roof1, roof2, extra1 | extra2)) updated = true;
+                if (eliminateType4(corners, pair, g, roof1, roof2, a, b)) updated = true;
+                if (eliminateType4(corners, pair, g, roof1, roof2, b, a)) updated = true;
+            }
+        }
+        for (int f = 0; f < 4; f++) {
+            if ((floor & (1 << f)) == 0) continue;
+            if (eliminateHidden(corners, pair, f, a, b)) updated = true;
+            if (eliminateHidden(corners, pair, f, b, a)) updated = true;
+        }
+        return updated;
+    }
+
+    // The roof corners are both {a, b, c}
+    private boolean eliminateType2(int[] corners, int pair, int roof1, int roof2, int symbolCode) {
+        long[] seen = peerTable.getPeerMask(corners[roof1]).clone();
+        long[] peers2 = peerTable.getPeerMask(corners[roof2]);
+        for (int w = 0; w < nWords; w++) seen[w] &= peers2[w];
+
+        Coord[] allCells = myPuzzle.getAllCells();
+        Set<Coord> removedFrom = new TreeSet<>();
+        for (int w = 0; w < nWords; w++) {
+            for (long m = seen[w]; m != 0; m &= m - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                if (!myPuzzle.isOccupied(i) && candidates.contains(i, symbolCode)) removedFrom.add(allCells[i]);
+            }
+        }
+        if (removedFrom.isEmpty()) return false;
+        return removePossibility(symbolCode, removedFrom, getReason("Type 2", corners, pair, null));
+    }
+
+    // The extras of the roof corners with other cells of the group form a naked subset
+    private boolean eliminateType3(int[] corners, int pair, int groupIndex, int roof1, int roof2, int extras) {
+        AbstractGroup g = myPuzzle.getGroups()[groupIndex];
+        int[] cellIndexes = g.getCellIndexes();
+        int[] others = new int[cellIndexes.length];
+        int nOthers = 0;
+        for (int i : cellIndexes) {
+            if (i != corners[roof1] && i != corners[roof2] && !myPuzzle.isOccupied(i)) others[nOthers++] = i;
+        }
+        boolean updated = false;
+        for (int size = 1; size <= Math.min(MAX_SUBSET_SIZE, nOthers - 1); size++) {
+            int[] subset = new int[size];
+            if (findSubsets(corners, pair, Arrays.copyOf(others, nOthers), subset, 0, 0, extras)) updated = true;
+        }
+        return updated;
+    }
+
+    // Cells of which the candidates together with the extras are one more than
+    // the number of cells. These symbols are removed from the rest of the group.
+    private boolean findSubsets(int[] corners, int pair, int[] others, int[] subset, int depth, int from, int union) {
+        if (depth == subset.length) {
+            if (CandidateGrid.popcount(union) != subset.length + 1) return false;
+
+            Set<Coord> subsetCells = new TreeSet<>();
+            for (int i : subset) subsetCells.add(myPuzzle.getAllCells()[i]);
+            boolean updated = false;
+            for (int i : others) {
+                if (Arrays.stream(subset).anyMatch((j) -> j == i)) continue;
+                if (removePossibilities(union, i, "Type 3", corners, pair, subsetCells)) updated = true;
+            }
+            return updated;
+        }
+        boolean updated = false;
+        for (int k = from; k <= others.length - (subset.length - depth); k++) {
+            int newUnion = union | candidates.get(others[k]);
+            if (CandidateGrid.popcount(newUnion) > subset.length + 1) continue;
+            subset[depth] = others[k];
+            if (findSubsets(corners, pair, others, subset, depth + 1, k + 1, newUnion)) updated = true;
+        }
+        return updated;
+    }
+
+    // Symbol a only has the roof corners in the group, so they cannot be b
+    private boolean eliminateType4(int[] corners, int pair, int groupIndex, int roof1, int roof2, int a, int b) {
+        AbstractGroup g = myPuzzle.getGroups()[groupIndex];
+        if (!isComplete(g)) return false;
+        int roofPositions = (1 << g.getPosition(corners[roof1])) | (1 << g.getPosition(corners[roof2]));
+        if (candidates.getPositions(groupIndex, a) != roofPositions) return false;
+
+        boolean updated = false;
+        for (int roof : new int[]{roof1, roof2}) {
+            if (removePossibilities(CandidateGrid.bit(b), corners[roof], "Type 4", corners, pair, null)) updated = true;
+        }
+        return updated;
+    }
+
+    // Corner f is just {a, b}. If the opposite corner were b, a would have to be in
+    // both of the other corners, which leaves only b for f.
+    private boolean eliminateHidden(int[] corners, int pair, int f, int a, int b) {
+        int opposite = 3 - f;
+        int side1 = f ^ 1;
+        int side2 = f ^ 2;
+        if (!candidates.contains(corners[opposite], b)) return false;
+        if (!peerTable.isPeer(corners[f], corners[side1]) || !peerTable.isPeer(corners[f], corners[side2])) return false;
+        if (!isOnlyIn(a, corners[opposite], corners[side1]) || !isOnlyIn(a, corners[opposite], corners[side2])) return false;
+
+        return removePossibilities(CandidateGrid.bit(b), corners[opposite], "Hidden", corners, pair, null);
+    }
+
+    // Some group of both cells has the symbol only there
+    private boolean isOnlyIn(int symbolCode, int cell1, int cell2) {
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        for (int g : getSharedGroups(cell1, cell2)) {
+            if (!isComplete(groups[g])) continue;
+            int positions = (1 << groups[g].getPosition(cell1)) | (1 << groups[g].getPosition(cell2));
+            if ((candidates.getPositions(g, symbolCode) & ~positions) == 0) return true;
+        }
+        return false;
+    }
+
+    // The group has to have all symbols
+    private boolean isComplete(AbstractGroup g) {
+        return g.getGroupSize() == myPuzzle.getSymbolCodeRange() - 1;
+    }
+
+    private int[] getSharedGroups(int cell1, int cell2) {
+        int[] groups1 = myPuzzle.getTopology().getBuddyGroupIndexes(cell1);
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        return Arrays.stream(groups1).filter((g) -> groups[g].isInGroup(cell2)).toArray();
+    }
+
+    private boolean removePossibilities(int symbolCodes, int cellIndex, String type,
+                                        int[] corners, int pair, Set<Coord> subsetCells) {
+        if ((candidates.get(cellIndex) & symbolCodes) == 0) return false;
+        return removePossibilities(symbolCodes, myPuzzle.getAllCells()[cellIndex],
+                getReason(type, corners, pair, subsetCells));
+    }
+
+    private EliminationLog.Reason getReason(String type, int[] corners, int pair, Set<Coord> subsetCells) {
+        if (!isExplaining()) return null;
+        Set<Coord> cornerCells = new TreeSet<>();
+        for (int i : corners) cornerCells.add(myPuzzle.getAllCells()[i]);
+        return (coord, removed) -> new UniqueRectangleEliminationReason(
+                CandidateGrid.toSymbols(myPuzzle, removed, new TreeSet<>()), coord,
+                cornerCells, CandidateGrid.toSymbols(myPuzzle, pair, new TreeSet<>()), type, subsetCells);
+    }
+
+    // Corners of all rectangles where each group has none or two of the corners
+    private static int[][] getRectangles(PuzzleTopology topology) {
+        return rectanglesByTopology.computeIfAbsent(topology, UniqueRectangleEliminator::findRectangles);
+    }
+
+    private static int[][] findRectangles(PuzzleTopology topology) {
+        List<int[]> rectangles = new ArrayList<>();
+        int width = topology.getWidth();
+        int height = topology.getHeight();
+        for (int y1 = 0; y1 < height; y1++) {
+            for (int y2 = y1 + 1; y2 < height; y2++) {
+                for (int x1 = 0; x1 < width; x1++) {
+                    for (int x2 = x1 + 1; x2 < width; x2++) {
+                        int[] corners = {topology.getCellIndex(x1, y1), topology.getCellIndex(x2, y1),
+                                topology.getCellIndex(x1, y2), topology.getCellIndex(x2, y2)};
+                        if (isRectangle(topology, corners)) rectangles.add(corners);
+                    }
+                }
+            }
+        }
+        return rectangles.toArray(new int[0][]);
+    }
+
+    private static boolean isRectangle(PuzzleTopology topology, int[] corners) {
+        for (int corner : corners) {
+            for (AbstractGroup g : topology.getBuddyGroups(corner)) {
+                int n = 0;
+                for (int i : corners) {
+                    if (g.isInGroup(i)) n++;
+                }
+                if (n != 2) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,5 +1,13 @@
 package ottop.sudoku.solver;
 
+import ottop.sudoku.board.Coord;
+
 public interface Updateable {
     void update();
+
+    // Called after a symbol has been placed at the given cell. Implementations can
+    // apply this as a delta, by default everything is recalculated.
+    default void update(Coord placedAt) {
+        update();
+    }
 }
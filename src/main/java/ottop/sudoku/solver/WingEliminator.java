@@ -0,0 +1,237 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.explain.WWingEliminationReason;
+import ottop.sudoku.explain.XYWingEliminationReason;
+import ottop.sudoku.explain.XYZWingEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Wings: XY-Wing, XYZ-Wing and W-Wing.
+//
+// XY-Wing: a pivot cell with candidates {x, y} sees two "pincer" cells with
+// {x, z} and {y, z}. Whatever goes in the pivot, one of the pincers is z, so z
+// can be removed from the cells that see both pincers.
+//
+// XYZ-Wing: the same but with {x, y, z} in the pivot. The pivot can be z itself
+// now, so z is only removed from the cells that see the pivot as well.
+//
+// W-Wing: two cells with the same candidates {x, y} that do not see each other,
+// and a group where x has only two positions, each seeing one of the cells. One
+// of the cells has to be y then, so y can be removed from the cells that see both.
+//
+// The bivalue cells are kept in an index per round. Cells that see all cells of
+// a wing are found by ANDing their peer bitsets (see PeerTable).
+
+public class WingEliminator extends Eliminator {
+    private final PeerTable peerTable;
+    private final int nCells;
+    private final int nWords;
+
+    // Of the current round. Candidates only get less during a round, so what a
+    // wing says about its cells stays true when others remove some.
+    private int[] masks; // candidates by cell, 0 when occupied
+    private long[] bivalueCells;
+    private int[] bivalueList;
+    private int nBivalue;
+    private long[][] symbolCells; // cells by symbol code
+
+    WingEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.peerTable = myPuzzle.getTopology().getPeerTable();
+        this.nCells = myPuzzle.getAllCells().length;
+        this.nWords = PeerTable.wordCount(nCells);
+    }
+
+    public boolean eliminate() {
+        // Depends on all of the candidates
+        if (!isAnySymbolChanged()) return false;
+
+        initRound();
+
+        boolean updated = false;
+        if (findXYWings()) updated = true;
+        if (findXYZWings()) updated = true;
+        if (findWWings()) updated = true;
+        return updated;
+    }
+
+    private void initRound() {
+        masks = new int[nCells];
+        bivalueCells = new long[nWords];
+        bivalueList = new int[nCells];
+        nBivalue = 0;
+        symbolCells = new long[myPuzzle.getSymbolCodeRange()][nWords];
+        for (int i = 0; i < nCells; i++) {
+            if (myPuzzle.isOccupied(i)) continue;
+            int mask = candidates.get(i);
+            masks[i] = mask;
+            if (CandidateGrid.popcount(mask) == 2) {
+                bivalueCells[i >> 6] |= 1L << i;
+                bivalueList[nBivalue++] = i;
+            }
+            for (int s = CandidateGrid.firstSymbol(mask); s >= 0; s = CandidateGrid.nextSymbol(mask, s)) {
+                symbolCells[s][i >> 6] |= 1L << i;
+            }
+        }
+    }
+
+    private boolean findXYWings() {
+        boolean updated = false;
+        for (int k = 0; k < nBivalue; k++) {
+            int pivot = bivalueList[k];
+            int pivotMask = masks[pivot];
+
+            // Pincers share one candidate with the pivot
+            int[] pincers = getBivaluePeers(pivot, pivotMask, false);
+            for (int a = 0; a < pincers.length; a++) {
+                for (int b = a + 1; b < pincers.length; b++) {
+                    int maskA = masks[pincers[a]];
+                    int maskB = masks[pincers[b]];
+                    if ((maskA & pivotMask) == (maskB & pivotMask)) continue;
+                    int z = maskA & maskB;
+                    if (z == 0 || (z & pivotMask) != 0) continue;
+                    int symbolCode = CandidateGrid.lowestSymbol(z);
+
+                    long[] targets = seenByAll(symbolCode, pincers[a], pincers[b]);
+                    if (targets == null) continue;
+                    Coord[] allCells = myPuzzle.getAllCells();
+                    Coord pivotCell = allCells[pivot];
+                    Coord pincerA = allCells[pincers[a]];
+                    Coord pincerB = allCells[pincers[b]];
+                    if (removePossibility(symbolCode, toCoords(targets), !isExplaining() ? null : (coord, removed) ->
+                            new XYWingEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), coord,
+                                    pivotCell, pincerA, pincerB))) {
+                        updated = true;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private boolean findXYZWings() {
+        boolean updated = false;
+        for (int pivot = 0; pivot < nCells; pivot++) {
+            int pivotMask = masks[pivot];
+            if (CandidateGrid.popcount(pivotMask) != 3) continue;
+
+            // Pincers have two of the three candidates of the pivot
+            int[] pincers = getBivaluePeers(pivot, pivotMask, true);
+            for (int a = 0; a < pincers.length; a++) {
+                for (int b = a + 1; b < pincers.length; b++) {
+                    int maskA = masks[pincers[a]];
+                    int maskB = masks[pincers[b]];
+                    if (maskA == maskB) continue;
+                    int symbolCode = CandidateGrid.lowestSymbol(maskA & maskB);
+
+                    long[] targets = seenByAll(symbolCode, pivot, pincers[a], pincers[b]);
+                    if (targets == null) continue;
+                    Coord[] allCells = myPuzzle.getAllCells();
+                    Coord pivotCell = allCells[pivot];
+                    Coord pincerA = allCells[pincers[a]];
+                    Coord pincerB = allCells[pincers[b]];
+                    if (removePossibility(symbolCode, toCoords(targets), !isExplaining() ? null : (coord, removed) ->
+                            new XYZWingEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), coord,
+                                    pivotCell, pincerA, pincerB))) {
+                        updated = true;
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    private boolean findWWings() {
+        boolean updated = false;
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        int nSymbols = myPuzzle.getSymbolCodeRange() - 1;
+        for (int a = 0; a < nBivalue; a++) {
+            for (int b = a + 1; b < nBivalue; b++) {
+                int cellA = bivalueList[a];
+                int cellB = bivalueList[b];
+                int mask = masks[cellA];
+                if (masks[cellB] != mask || peerTable.isPeer(cellA, cellB)) continue;
+
+                for (int x = CandidateGrid.firstSymbol(mask); x >= 0; x = CandidateGrid.nextSymbol(mask, x)) {
+                    int symbolCode = CandidateGrid.lowestSymbol(mask & ~CandidateGrid.bit(x));
+                    long[] targets = seenByAll(symbolCode, cellA, cellB);
+                    if (targets == null) continue;
+
+                    // A strong link on x from a cell seeing A to a cell seeing B
+                    for (int g = 0; g < groups.length; g++) {
+                        if (groups[g].getGroupSize() != nSymbols) continue;
+                        int positions = candidates.getPositions(g, x);
+                        if (Integer.bitCount(positions) != 2) continue;
+                        int[] cellIndexes = groups[g].getCellIndexes();
+                        int end1 = cellIndexes[Integer.numberOfTrailingZeros(positions)];
+                        int end2 = cellIndexes[31 - Integer.numberOfLeadingZeros(positions)];
+                        if (end1 == cellA || end1 == cellB || end2 == cellA || end2 == cellB) continue;
+                        if (!(peerTable.isPeer(cellA, end1) && peerTable.isPeer(cellB, end2)) &&
+                                !(peerTable.isPeer(cellA, end2) && peerTable.isPeer(cellB, end1))) continue;
+
+                        Coord[] allCells = myPuzzle.getAllCells();
+                        Coord wingA = allCells[cellA];
+                        Coord wingB = allCells[cellB];
+                        Coord linkEnd1 = allCells[end1];
+                        Coord linkEnd2 = allCells[end2];
+                        AbstractGroup linkGroup = groups[g];
+                        String linkSymbol = myPuzzle.symbolCodeToSymbol(x);
+                        if (removePossibility(symbolCode, toCoords(targets), !isExplaining() ? null : (coord, removed) ->
+                                new WWingEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), coord,
+                                        wingA, wingB, linkSymbol, linkGroup, linkEnd1, linkEnd2))) {
+                            updated = true;
+                        }
+                        break; // any other link removes the same
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    // Bivalue peers of the cell that share one candidate with it, or with
+    // isSubset both of them
+    private int[] getBivaluePeers(int cellIndex, int mask, boolean isSubset) {
+        int[] peers = peerTable.getPeers(cellIndex);
+        int[] result = new int[peers.length];
+        int n = 0;
+        for (int peer : peers) {
+            if ((bivalueCells[peer >> 6] & (1L << peer)) == 0) continue;
+            int shared = masks[peer] & mask;
+            if (isSubset ? shared == masks[peer] : CandidateGrid.popcount(shared) == 1) {
+                result[n++] = peer;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Cells with the symbol that see all of the given cells, null if none
+    private long[] seenByAll(int symbolCode, int... cellIndexes) {
+        long[] result = symbolCells[symbolCode].clone();
+        boolean isEmpty = true;
+        for (int w = 0; w < nWords; w++) {
+            for (int i : cellIndexes) {
+                result[w] &= peerTable.getPeerMask(i)[w];
+            }
+            isEmpty &= result[w] == 0;
+        }
+        return isEmpty ? null : result;
+    }
+
+    private Set<Coord> toCoords(long[] cells) {
+        Coord[] allCells = myPuzzle.getAllCells();
+        Set<Coord> coords = new TreeSet<>();
+        for (int w = 0; w < nWords; w++) {
+            for (long m = cells[w]; m != 0; m &= m - 1) {
+                coords.add(allCells[(w << 6) + Long.numberOfTrailingZeros(m)]);
+            }
+        }
+        return coords;
+    }
+}
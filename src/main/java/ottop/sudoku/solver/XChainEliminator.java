@@ -0,0 +1,321 @@
+package ottop.sudoku.solver;
+
+import ottop.sudoku.board.AbstractGroup;
+import ottop.sudoku.board.ColumnGroup;
+import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
+import ottop.sudoku.board.RowGroup;
+import ottop.sudoku.explain.XChainEliminationReason;
+import ottop.sudoku.puzzle.ISudoku;
+
+import java.util.*;
+
+// Single symbol patterns: simple coloring and X-chains (of which the skyscraper
+// and the 2-string kite are the shortest).
+//
+// A group where a symbol has only two positions left is a strong link: if one of
+// them is not the symbol, the other is. The strong links of a symbol form a graph
+// over the cells with that candidate.
+//
+// Simple coloring: the cells of a connected part of that graph get alternating
+// colors, one of the colors is the symbol. If two cells of the same color see
+// each other, that color cannot be it. Cells that see both colors cannot be it
+// either.
+//
+// X-chain: strong links that are connected by weak ones, cells that just see
+// each other. Either the first or the last cell of such a chain is the symbol,
+// so cells that see both are not. Chains are found breadth first, so these are
+// the shortest.
+//
+// Cells, colors and visited cells are bitsets over the cell indexes (see PeerTable).
+
+public class XChainEliminator extends Eliminator {
+    private final PeerTable peerTable;
+    private final int nCells;
+    private final int nWords;
+
+    // Of the symbol being looked at
+    private long[] candidateCells;
+    private int[][] strongLinks; // by cell, the other ends
+    private int[][] strongLinkGroups; // and the groups they are in
+
+    XChainEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.peerTable = myPuzzle.getTopology().getPeerTable();
+        this.nCells = myPuzzle.getAllCells().length;
+        this.nWords = PeerTable.wordCount(nCells);
+    }
+
+    public boolean eliminate() {
+        boolean updated = false;
+        for (int symbolCode = 1; symbolCode < myPuzzle.getSymbolCodeRange(); symbolCode++) {
+            // Only depends on where this symbol is a candidate
+            if (!isSymbolChanged(symbolCode)) continue;
+
+            buildGraph(symbolCode);
+            if (findColorings(symbolCode)) updated = true;
+            if (findChains(symbolCode)) updated = true;
+        }
+        return updated;
+    }
+
+    private void buildGraph(int symbolCode) {
+        candidateCells = new long[nWords];
+        for (int i = 0; i < nCells; i++) {
+            if (!myPuzzle.isOccupied(i) && candidates.contains(i, symbolCode)) {
+                candidateCells[i >> 6] |= 1L << i;
+            }
+        }
+
+        int[] nLinks = new int[nCells];
+        int[][] links = new int[nCells][];
+        int[][] linkGroups = new int[nCells][];
+        // Rows and columns first, these name the chain
+        AbstractGroup[] groups = myPuzzle.getGroups();
+        int nSymbols = myPuzzle.getSymbolCodeRange() - 1;
+        for (int k = 0; k < 2 * groups.length; k++) {
+            int g = k % groups.length;
+            if (isLine(groups[g]) != (k < groups.length)) continue;
+            if (groups[g].getGroupSize() != nSymbols) continue;
+            int positions = candidates.getPositions(g, symbolCode);
+            if (Integer.bitCount(positions) != 2) continue;
+            int[] cellIndexes = groups[g].getCellIndexes();
+            int end1 = cellIndexes[Integer.numberOfTrailingZeros(positions)];
+            int end2 = cellIndexes[31 - Integer.numberOfLeadingZeros(positions)];
+            addLink(links, linkGroups, nLinks, end1, end2, g);
+            addLink(links, linkGroups, nLinks, end2, end1, g);
+        }
+        strongLinks = new int[nCells][];
+        strongLinkGroups = new int[nCells][];
+        for (int i = 0; i < nCells; i++) {
+            strongLinks[i] = links[i] == null ? new int[0] : Arrays.copyOf(links[i], nLinks[i]);
+            strongLinkGroups[i] = linkGroups[i] == null ? new int[0] : Arrays.copyOf(linkGroups[i], nLinks[i]);
+        }
+    }
+
+    // The same two cells can be linked in more than one group, only the first counts
+    // (see buildGraph for the order)
+    private static void addLink(int[][] links, int[][] linkGroups, int[] nLinks, int from, int to, int g) {
+        if (links[from] == null) {
+            links[from] = new int[4];
+            linkGroups[from] = new int[4];
+        }
+        for (int k = 0; k < nLinks[from]; k++) {
+            if (links[from][k] == to) return;
+        }
+        if (nLinks[from] == links[from].length) {
+            links[from] = Arrays.copyOf(links[from], 2 * nLinks[from]);
+            linkGroups[from] = Arrays.copyOf(linkGroups[from], 2 * nLinks[from]);
+        }
+        links[from][nLinks[from]] = to;
+        linkGroups[from][nLinks[from]] = g;
+        nLinks[from]++;
+    }
+
+    private boolean findColorings(int symbolCode) {
+        boolean updated = false;
+        long[] colored = new long[nWords];
+        for (int start = 0; start < nCells; start++) {
+            if (strongLinks[start].length == 0 || isSet(colored, start)) continue;
+            // A single link is the same as intersection radiation
+            boolean isSingleLink = strongLinks[start].length == 1 && strongLinks[strongLinks[start][0]].length == 1;
+
+            // Color the connected cells
+            long[][] colors = {new long[nWords], new long[nWords]};
+            Deque<Integer> queue = new ArrayDeque<>();
+            set(colors[0], start);
+            set(colored, start);
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                int cell = queue.poll();
+                int color = isSet(colors[0], cell) ? 0 : 1;
+                for (int next : strongLinks[cell]) {
+                    if (isSet(colored, next)) continue;
+                    set(colors[1 - color], next);
+                    set(colored, next);
+                    queue.add(next);
+                }
+            }
+
+            if (isSingleLink) continue;
+
+            // A color that sees itself is wrong
+            boolean hasWrap = false;
+            for (int color = 0; color < 2 && !hasWrap; color++) {
+                if (seesItself(colors[color])) {
+                    hasWrap = true;
+                    Set<Coord> removedFrom = toCoords(colors[color], symbolCode);
+                    if (!removedFrom.isEmpty() && removePossibility(symbolCode, removedFrom,
+                            getColoringReason(symbolCode, colors[color], colors[1 - color], true))) {
+                        updated = true;
+                    }
+                }
+            }
+            if (hasWrap) continue;
+
+            // Cells that see both colors
+            long[] seen0 = seenByAny(colors[0]);
+            long[] seen1 = seenByAny(colors[1]);
+            long[] targets = new long[nWords];
+            for (int w = 0; w < nWords; w++) {
+                targets[w] = seen0[w] & seen1[w] & candidateCells[w] & ~colors[0][w] & ~colors[1][w];
+            }
+            Set<Coord> removedFrom = toCoords(targets, symbolCode);
+            if (!removedFrom.isEmpty() && removePossibility(symbolCode, removedFrom,
+                    getColoringReason(symbolCode, colors[0], colors[1], false))) {
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    private boolean seesItself(long[] cells) {
+        for (int w = 0; w < nWords; w++) {
+            for (long m = cells[w]; m != 0; m &= m - 1) {
+                long[] peers = peerTable.getPeerMask((w << 6) + Long.numberOfTrailingZeros(m));
+                for (int v = 0; v < nWords; v++) {
+                    if ((peers[v] & cells[v]) != 0) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private long[] seenByAny(long[] cells) {
+        long[] seen = new long[nWords];
+        for (int w = 0; w < nWords; w++) {
+            for (long m = cells[w]; m != 0; m &= m - 1) {
+                long[] peers = peerTable.getPeerMask((w << 6) + Long.numberOfTrailingZeros(m));
+                for (int v = 0; v < nWords; v++) seen[v] |= peers[v];
+            }
+        }
+        return seen;
+    }
+
+    // Breadth first from every cell with a strong link, assuming it is not the
+    // symbol. A state is a cell and whether it is the symbol (1) or not (0).
+    private boolean findChains(int symbolCode) {
+        boolean updated = false;
+        long[][] visited = new long[2][nWords];
+        int[] parent = new int[2 * nCells];
+        int[] parentGroup = new int[2 * nCells];
+        int[] queue = new int[2 * nCells];
+        for (int start = 0; start < nCells; start++) {
+            if (strongLinks[start].length == 0) continue;
+
+            for (long[] v : visited) Arrays.fill(v, 0L);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = 2 * start;
+            set(visited[0], start);
+            parent[2 * start] = -1;
+            while (head < tail) {
+                int state = queue[head++];
+                int cell = state >> 1;
+                if ((state & 1) == 0) {
+                    // Not the symbol, so the other end of a strong link is
+                    for (int k = 0; k < strongLinks[cell].length; k++) {
+                        int next = strongLinks[cell][k];
+                        if (isSet(visited[1], next)) continue;
+                        set(visited[1], next);
+                        parent[2 * next + 1] = state;
+                        parentGroup[2 * next + 1] = strongLinkGroups[cell][k];
+                        queue[tail++] = 2 * next + 1;
+
+                        // At least strong, weak, strong. Shorter is done by the coloring.
+                        if (next > start && parent[state] >= 0) {
+                            if (removeSeenByEnds(symbolCode, start, next, parent, parentGroup)) updated = true;
+                        }
+                    }
+                } else {
+                    // The symbol, so none of the cells it sees is
+                    long[] peers = peerTable.getPeerMask(cell);
+                    for (int w = 0; w < nWords; w++) {
+                        for (long m = peers[w] & candidateCells[w] & ~visited[0][w]; m != 0; m &= m - 1) {
+                            int next = (w << 6) + Long.numberOfTrailingZeros(m);
+                            set(visited[0], next);
+                            parent[2 * next] = state;
+                            queue[tail++] = 2 * next;
+                        }
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    // The symbol is in the first or the last cell of the chain
+    private boolean removeSeenByEnds(int symbolCode, int first, int last, int[] parent, int[] parentGroup) {
+        long[] targets = new long[nWords];
+        long[] peers1 = peerTable.getPeerMask(first);
+        long[] peers2 = peerTable.getPeerMask(last);
+        for (int w = 0; w < nWords; w++) targets[w] = peers1[w] & peers2[w] & candidateCells[w];
+        Set<Coord> removedFrom = toCoords(targets, symbolCode);
+        if (removedFrom.isEmpty()) return false;
+
+        EliminationLog.Reason reason = null;
+        if (isExplaining()) {
+            Coord[] allCells = myPuzzle.getAllCells();
+            List<Coord> chain = new ArrayList<>();
+            List<AbstractGroup> strongGroups = new ArrayList<>();
+            for (int state = 2 * last + 1; state >= 0; state = parent[state]) {
+                chain.add(0, allCells[state >> 1]);
+                if ((state & 1) == 1) strongGroups.add(0, myPuzzle.getGroups()[parentGroup[state]]);
+            }
+            String name = getChainName(strongGroups, chain);
+            reason = (coord, removed) -> new XChainEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), coord,
+                    chain, strongGroups, name);
+        }
+        return removePossibility(symbolCode, removedFrom, reason);
+    }
+
+    // Two strong links in parallel lines make a skyscraper, in a row and a column
+    // that are weakly linked in a box a 2-string kite
+    private String getChainName(List<AbstractGroup> strongGroups, List<Coord> chain) {
+        if (strongGroups.size() > 2) return "X-Chain";
+        AbstractGroup g1 = strongGroups.get(0);
+        AbstractGroup g2 = strongGroups.get(1);
+        if ((g1 instanceof RowGroup && g2 instanceof RowGroup) ||
+                (g1 instanceof ColumnGroup && g2 instanceof ColumnGroup)) return "Skyscraper";
+        List<AbstractGroup> boxes = myPuzzle.getGroupsWithVisualBoundary();
+        if (isLine(g1) && isLine(g2) && boxes != null) {
+            for (AbstractGroup box : boxes) {
+                if (box.isInGroup(chain.get(1)) && box.isInGroup(chain.get(2))) return "2-String Kite";
+            }
+        }
+        return "Turbot Fish";
+    }
+
+    private static boolean isLine(AbstractGroup g) {
+        return g instanceof RowGroup || g instanceof ColumnGroup;
+    }
+
+    private EliminationLog.Reason getColoringReason(int symbolCode, long[] color1, long[] color2, boolean isWrap) {
+        if (!isExplaining()) return null;
+        Set<Coord> cells1 = toCoords(color1, -1);
+        Set<Coord> cells2 = toCoords(color2, -1);
+        return (coord, removed) -> new XChainEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode), coord,
+                cells1, cells2, isWrap);
+    }
+
+    // Only the cells that still have the symbol, all of them if no symbol is given
+    private Set<Coord> toCoords(long[] cells, int symbolCode) {
+        Coord[] allCells = myPuzzle.getAllCells();
+        Set<Coord> coords = new TreeSet<>();
+        for (int w = 0; w < nWords; w++) {
+            for (long m = cells[w]; m != 0; m &= m - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                if (symbolCode < 0 || candidates.contains(i, symbolCode)) coords.add(allCells[i]);
+            }
+        }
+        return coords;
+    }
+
+    private static boolean isSet(long[] cells, int i) {
+        return (cells[i >> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] cells, int i) {
+        cells[i >> 6] |= 1L << i;
+    }
+}
@@ -3,132 +3,313 @@ package ottop.sudoku.solver;
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.ColumnGroup;
 import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.PeerTable;
 import ottop.sudoku.board.RowGroup;
-import ottop.sudoku.explain.Explanation;
 import ottop.sudoku.explain.XWingEliminationReason;
 import ottop.sudoku.puzzle.ISudoku;
 
 import java.util.*;
 
+// Fish: X-Wing (2), Swordfish (3) and Jellyfish (4), also finned and sashimi.
+//
+// Take N "base" groups that do not overlap and that must each contain the symbol
+// once, so the symbol is N times in their cells. When the candidates of the bases
+// are all in N "cover" groups, each of the covers has exactly one of these, so
+// the symbol can be removed from the rest of the covers.
+//
+// With fins, base candidates outside of the covers, either one of the fins is
+// the symbol or the fish holds. So then the symbol is only removed from the
+// covers at cells that see all fins. A sashimi fish is a finned fish that without
+// its fins would not even be a fish, as one of its bases has only one candidate
+// left in the covers.
+//
+// Bases are rows and covers columns, or the other way around. The extra groups
+// of e.g. NRC and S-Doku can be base and cover as well. Any other families of
+// groups can be given to the constructor.
+//
+// Everything is done on bitsets: of the cells (see PeerTable) for the candidates
+// and the groups, and per base the covers that its candidates are in.
+
 public class XWingEliminator extends Eliminator {
+    private static final int MIN_SIZE = 2;
+    private static final int MAX_SIZE = 4;
+    private static final int MAX_FIN_COVERS = 2; // covers touched by the bases beyond the size of the fish
+
+    private final List<Families> allFamilies = new ArrayList<>();
+    private final int nWords;
+
+    private static class Families {
+        final AbstractGroup[] bases;
+        final AbstractGroup[] covers;
+        final long[][] baseCells;
+        final long[][] coverCells;
+
+        Families(Collection<AbstractGroup> bases, Collection<AbstractGroup> covers, int nWords) {
+            this.bases = bases.toArray(new AbstractGroup[0]);
+            this.covers = covers.toArray(new AbstractGroup[0]);
+            if (this.covers.length > 64) {
+                throw new IllegalArgumentException("At most 64 cover groups, got " + this.covers.length);
+            }
+            baseCells = toCellMasks(this.bases, nWords);
+            coverCells = toCellMasks(this.covers, nWords);
+        }
 
-    XWingEliminator(ISudoku myPuzzle, Map<Coord, Set<Integer>> candidatesPerCell, Map<Coord, List<Explanation>> removalReasons) {
-        super(myPuzzle, candidatesPerCell, removalReasons);
+        private static long[][] toCellMasks(AbstractGroup[] groups, int nWords) {
+            long[][] masks = new long[groups.length][nWords];
+            for (int g = 0; g < groups.length; g++) {
+                for (int i : groups[g].getCellIndexes()) {
+                    masks[g][i >> 6] |= 1L << i;
+                }
+            }
+            return masks;
+        }
+    }
+
+    XWingEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons) {
+        super(myPuzzle, candidates, removalReasons);
+        this.nWords = PeerTable.wordCount(myPuzzle.getAllCells().length);
+
+        // Groups that are not rows, columns or boxes (the groups with a boundary)
+        List<AbstractGroup> rows = new ArrayList<>();
+        List<AbstractGroup> columns = new ArrayList<>();
+        List<AbstractGroup> extra = new ArrayList<>();
+        List<AbstractGroup> boxes = myPuzzle.getGroupsWithVisualBoundary();
+        for (AbstractGroup g : myPuzzle.getGroups()) {
+            if (g instanceof RowGroup) {
+                rows.add(g);
+            } else if (g instanceof ColumnGroup) {
+                columns.add(g);
+            } else if (boxes == null || !boxes.contains(g)) {
+                extra.add(g);
+            }
+        }
+        List<AbstractGroup> rowsPlusExtra = new ArrayList<>(rows);
+        rowsPlusExtra.addAll(extra);
+        List<AbstractGroup> columnsPlusExtra = new ArrayList<>(columns);
+        columnsPlusExtra.addAll(extra);
+        allFamilies.add(new Families(rows, columnsPlusExtra, nWords));
+        allFamilies.add(new Families(columns, rowsPlusExtra, nWords));
+        if (!extra.isEmpty()) {
+            allFamilies.add(new Families(extra, rowsPlusExtra, nWords));
+            allFamilies.add(new Families(extra, columnsPlusExtra, nWords));
+        }
+    }
+
+    // Fish with any other bases and covers
+    public XWingEliminator(ISudoku myPuzzle, CandidateGrid candidates, EliminationLog removalReasons,
+                           Collection<AbstractGroup> bases, Collection<AbstractGroup> covers) {
+        super(myPuzzle, candidates, removalReasons);
+        this.nWords = PeerTable.wordCount(myPuzzle.getAllCells().length);
+        allFamilies.add(new Families(bases, covers, nWords));
     }
 
     public boolean eliminate() {
         boolean updated = false;
+        int nCells = myPuzzle.getAllCells().length;
         for (int symbolCode = 1; symbolCode < myPuzzle.getSymbolCodeRange(); symbolCode++) {
-            // For each symbolCode, figure out in which rows of each column it occurs. Then
-            // get the set of columns that have the same row set. Same for rows x cols.
-            // For those entries that have the same size of {columns} x {rows}, we now
-            // know that 'symbolCode' has to be in (one or more of) the intersections of those,
-            // so it can be eliminated from the possibilities in each of those groups
-            // outside of the intersections.
-
-            Map<Set<AbstractGroup>, Set<AbstractGroup>> xWingMap = new HashMap<>();
-            for (AbstractGroup g : myPuzzle.getGroups()) {
-                Set<AbstractGroup> intersectingGroups = null;
-                if (g instanceof ColumnGroup) {
-                    // list of rows intersecting with column g
-                    intersectingGroups = toRowGroups(getRowSet(g, symbolCode));
-                } else if (g instanceof RowGroup) {
-                    // list of columns intersecting with row g
-                    intersectingGroups = toColumnGroups(getColSet(g, symbolCode));
+            // Only depends on where this symbol is a candidate
+            if (!isSymbolChanged(symbolCode)) continue;
+
+            long[] candidateCells = new long[nWords];
+            for (int i = 0; i < nCells; i++) {
+                if (!myPuzzle.isOccupied(i) && candidates.contains(i, symbolCode)) {
+                    candidateCells[i >> 6] |= 1L << i;
                 }
-                if (intersectingGroups != null && !intersectingGroups.isEmpty()) {
-                    Set<AbstractGroup> grps = xWingMap.computeIfAbsent(intersectingGroups, k -> new TreeSet<>());
-                    grps.add(g);
+            }
+            for (Families families : allFamilies) {
+                FishSearch search = new FishSearch(families, symbolCode, candidateCells);
+                for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+                    if (search.find(size)) updated = true;
                 }
             }
+        }
+        return updated;
+    }
 
-            // For all keys k
-            // if there is another key that k is a full subset of
-            // then add all values of k to that one too
-            for (Map.Entry<Set<AbstractGroup>, Set<AbstractGroup>> k: xWingMap.entrySet()) {
-                for (Map.Entry<Set<AbstractGroup>, Set<AbstractGroup>> l: xWingMap.entrySet()) {
-                    if (k != l) {
-                        if (l.getKey().containsAll(k.getKey())) {
-                            l.getValue().addAll(k.getValue());
-                        }
+    // The search for one symbol in one pair of base and cover families
+    private class FishSearch {
+        private final Families families;
+        private final int symbolCode;
+        private final long[] candidateCells;
+        private final int[] usableBases; // bases that must have the symbol and do not have it yet
+        private final long[][] baseCandidates; // by base
+        private final long[] touchedCovers; // by base, bit per cover that has some of its candidates
+
+        private int size;
+        private final int[] chosen = new int[MAX_SIZE];
+        private final long[][] bases = new long[MAX_SIZE + 1][]; // union of the cells of the chosen bases, by depth
+        private final long[][] baseUnion = new long[MAX_SIZE + 1][]; // and of their candidates
+        private boolean updated;
+
+        FishSearch(Families families, int symbolCode, long[] candidateCells) {
+            this.families = families;
+            this.symbolCode = symbolCode;
+            this.candidateCells = candidateCells;
+            int nSymbols = myPuzzle.getSymbolCodeRange() - 1;
+            int nBases = families.bases.length;
+            baseCandidates = new long[nBases][nWords];
+            touchedCovers = new long[nBases];
+            int[] usable = new int[nBases];
+            int nUsable = 0;
+            for (int b = 0; b < nBases; b++) {
+                AbstractGroup base = families.bases[b];
+                if (base.getGroupSize() != nSymbols) continue;
+                if (CandidateGrid.hasSymbol(getSymbolCodesInGroup(base), symbolCode)) continue;
+                boolean hasCandidates = false;
+                for (int w = 0; w < nWords; w++) {
+                    baseCandidates[b][w] = families.baseCells[b][w] & candidateCells[w];
+                    hasCandidates |= baseCandidates[b][w] != 0;
+                }
+                if (!hasCandidates) continue;
+                for (int c = 0; c < families.covers.length; c++) {
+                    if (families.covers[c] != base && intersects(families.coverCells[c], baseCandidates[b])) {
+                        touchedCovers[b] |= 1L << c;
                     }
                 }
+                usable[nUsable++] = b;
             }
+            usableBases = Arrays.copyOf(usable, nUsable);
+            for (int d = 0; d <= MAX_SIZE; d++) {
+                bases[d] = new long[nWords];
+                baseUnion[d] = new long[nWords];
+            }
+        }
 
-            // Now, with this map, if the set of rows is of the same size as the set of
-            // columns that have identical row sets, eliminate 'symbolCode' from other cells
-            // in the rows. Same for col vs row.
-            for (Map.Entry<Set<AbstractGroup>, Set<AbstractGroup>> entry : xWingMap.entrySet()) {
-                if (entry.getKey().size() > 1 &&
-                        entry.getKey().size() == entry.getValue().size()) { // becomes * 2 now ??
-                    for (AbstractGroup g : entry.getKey()) {
-                        // Eliminate 'symbolCode' from this row 'g' except for the groups it intersects
-                        Set<Coord> candidateRemovals = new TreeSet<>(g.getCoords());
-                        for (AbstractGroup other : entry.getValue()) {
-                            candidateRemovals.removeAll(other.getCoords());
-                        }
-                        if (removePossibility(symbolCode, candidateRemovals,
-                                new XWingEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode),
-                                        candidateRemovals,
-                                        g,
-                                        entry.getKey(), entry.getValue()))) updated = true;
-                    }
-                }
+        boolean find(int size) {
+            this.size = size;
+            this.updated = false;
+            if (usableBases.length >= size) {
+                chooseBases(0, 0, 0L);
             }
+            return updated;
         }
-        return updated;
-    }
 
-    // Get rows corresponding to indices
-    private Set<AbstractGroup> toRowGroups(Set<Integer> rowset) {
-        Set<AbstractGroup> result = new TreeSet<>();
-        for (AbstractGroup g : myPuzzle.getGroups()) {
-            if (g instanceof RowGroup) {
-                if (rowset.contains(((RowGroup) g).getRow())) {
-                    result.add(g);
+        private void chooseBases(int depth, int from, long touched) {
+            if (depth == size) {
+                chooseCovers(touched);
+                return;
+            }
+            for (int k = from; k <= usableBases.length - (size - depth); k++) {
+                int b = usableBases[k];
+                if (intersects(bases[depth], families.baseCells[b])) continue; // bases must not overlap
+                long newTouched = touched | touchedCovers[b];
+                if (Long.bitCount(newTouched) > size + MAX_FIN_COVERS) continue;
+                for (int w = 0; w < nWords; w++) {
+                    bases[depth + 1][w] = bases[depth][w] | families.baseCells[b][w];
+                    baseUnion[depth + 1][w] = baseUnion[depth][w] | baseCandidates[b][w];
                 }
+                chosen[depth] = b;
+                chooseBases(depth + 1, k + 1, newTouched);
             }
         }
-        return result;
-    }
 
-    private Set<AbstractGroup> toColumnGroups(Set<Integer> colset) {
-        Set<AbstractGroup> result = new TreeSet<>();
-        for (AbstractGroup g : myPuzzle.getGroups()) {
-            if (g instanceof ColumnGroup) {
-                if (colset.contains(((ColumnGroup) g).getColumn())) {
-                    result.add(g);
+        // All ways to choose 'size' covers out of the ones the bases touch, the
+        // candidates of the bases outside of those are fins
+        private void chooseCovers(long touched) {
+            int nTouched = Long.bitCount(touched);
+            if (nTouched < size) return; // would be a contradiction, leave that to others
+            int[] touchedIndexes = new int[nTouched];
+            int n = 0;
+            for (long t = touched; t != 0; t &= t - 1) {
+                touchedIndexes[n++] = Long.numberOfTrailingZeros(t);
+            }
+            long[] coverCells = new long[nWords];
+            long[] fins = new long[nWords];
+            long[] removals = new long[nWords];
+            for (int subset = 0; subset < (1 << nTouched); subset++) {
+                if (Integer.bitCount(subset) != size) continue;
+                long covers = 0;
+                Arrays.fill(coverCells, 0L);
+                for (int j = 0; j < nTouched; j++) {
+                    if ((subset & (1 << j)) != 0) {
+                        covers |= 1L << touchedIndexes[j];
+                        long[] cells = families.coverCells[touchedIndexes[j]];
+                        for (int w = 0; w < nWords; w++) coverCells[w] |= cells[w];
+                    }
+                }
+                boolean hasFins = false;
+                boolean hasRemovals = false;
+                for (int w = 0; w < nWords; w++) {
+                    fins[w] = baseUnion[size][w] & ~coverCells[w];
+                    hasFins |= fins[w] != 0;
+                    removals[w] = candidateCells[w] & coverCells[w] & ~bases[size][w];
+                }
+                if (hasFins) {
+                    for (int w = 0; w < nWords; w++) {
+                        for (long f = fins[w]; f != 0; f &= f - 1) {
+                            long[] peers = myPuzzle.getTopology().getPeerTable().getPeerMask(
+                                    (w << 6) + Long.numberOfTrailingZeros(f));
+                            for (int v = 0; v < nWords; v++) removals[v] &= peers[v];
+                        }
+                    }
+                }
+                for (int w = 0; w < nWords; w++) hasRemovals |= removals[w] != 0;
+                if (hasRemovals) {
+                    removeFromCovers(covers, coverCells, hasFins ? fins : null, removals);
                 }
             }
         }
-        return result;
-    }
 
-    // Get indices of rows where given symbol is a candidate
-    private Set<Integer> getRowSet(AbstractGroup g, int symbolCode) {
-        Set<Integer> set = new TreeSet<>();
+        private void removeFromCovers(long covers, long[] coverCells, long[] fins, long[] removals) {
+            Coord[] allCells = myPuzzle.getAllCells();
+            Set<AbstractGroup> baseGroups = new TreeSet<>();
+            for (int d = 0; d < size; d++) {
+                baseGroups.add(families.bases[chosen[d]]);
+            }
+            Set<AbstractGroup> coverGroups = new TreeSet<>();
+            for (long c = covers; c != 0; c &= c - 1) {
+                coverGroups.add(families.covers[Long.numberOfTrailingZeros(c)]);
+            }
+            Set<Coord> finCells = fins == null ? null : toCoords(fins, allCells);
+            boolean isSashimi = false;
+            if (fins != null) {
+                for (int d = 0; d < size; d++) {
+                    int nInCovers = 0;
+                    for (int w = 0; w < nWords; w++) {
+                        nInCovers += Long.bitCount(baseCandidates[chosen[d]][w] & coverCells[w]);
+                    }
+                    if (nInCovers <= 1) isSashimi = true;
+                }
+            }
 
-        for (Coord c : g.getCoords()) {
-            if (candidatesPerCell.get(c).contains(symbolCode)) {
-                set.add(c.getY());
+            // Explained per cover, like before
+            long[] left = removals.clone();
+            for (long c = covers; c != 0; c &= c - 1) {
+                int cover = Long.numberOfTrailingZeros(c);
+                long[] inCover = new long[nWords];
+                boolean isEmpty = true;
+                for (int w = 0; w < nWords; w++) {
+                    inCover[w] = left[w] & families.coverCells[cover][w];
+                    left[w] &= ~inCover[w];
+                    isEmpty &= inCover[w] == 0;
+                }
+                if (isEmpty) continue;
+                Set<Coord> removedFrom = toCoords(inCover, allCells);
+                AbstractGroup coverGroup = families.covers[cover];
+                final boolean sashimi = isSashimi;
+                if (removePossibility(symbolCode, removedFrom, !isExplaining() ? null : (coord, removed) ->
+                        new XWingEliminationReason(myPuzzle.symbolCodeToSymbol(symbolCode),
+                                removedFrom, coverGroup, coverGroups, baseGroups, finCells, sashimi))) {
+                    updated = true;
+                }
             }
         }
-
-        return set;
     }
 
-    private Set<Integer> getColSet(AbstractGroup g, int symbolCode) {
-        Set<Integer> set = new TreeSet<>();
+    private boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < nWords; w++) {
+            if ((a[w] & b[w]) != 0) return true;
+        }
+        return false;
+    }
 
-        for (Coord c : g.getCoords()) {
-            if (candidatesPerCell.get(c).contains(symbolCode)) {
-                set.add(c.getX());
+    private static Set<Coord> toCoords(long[] cells, Coord[] allCells) {
+        Set<Coord> coords = new TreeSet<>();
+        for (int w = 0; w < cells.length; w++) {
+            for (long m = cells[w]; m != 0; m &= m - 1) {
+                coords.add(allCells[(w << 6) + Long.numberOfTrailingZeros(m)]);
             }
         }
-
-        return set;
+        return coords;
     }
-
-
-
 }
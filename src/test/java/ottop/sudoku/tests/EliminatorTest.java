@@ -183,6 +183,20 @@ public class EliminatorTest {
 
     }
 
+    @Test
+    public void testHiddenPairElimination() {
+        ISudoku p = PuzzleDB.www_extremesudoku_info_evil_271113;
+
+        SudokuSolver s = new SudokuSolver(p);
+        s.setEliminateNakedPairs();
+        s.setEarlyStop(false);
+
+        // 3 and 7 can only go in two cells of row 5, so 6 is removed from both
+        assertTrue(String.valueOf(s.getEliminationReasons(new Coord("r5c2"))).contains("Removed 6 because [3, 7] can only be in [r5c2, r5c5] in Row 5 (Hidden Pair)"));
+        assertEquals("[3, 7]", String.valueOf(s.getCandidatesAtCell(new Coord("r5c2"))));
+        assertEquals("[3, 7]", String.valueOf(s.getCandidatesAtCell(new Coord("r5c5"))));
+    }
+
     @Test
     public void testSwordfish() {
         ISudoku p = new StandardSudoku("Extreme Sudoku Excessive 4/1/21",
@@ -230,9 +244,11 @@ public class EliminatorTest {
         assertNotEquals(-1,
                 String.valueOf(solver.getEliminationReasons(new Coord("r6c1"))).indexOf("Swordfish"));
 
-        // Solving requires a swordfish
+        // Solving requires a swordfish. Eliminations are kept between moves so other
+        // moves become available as well.
+        Assert.assertEquals("7", solver.getAllNakedSingles().get(new Coord("r6c1")));
         SolveStats stats = new SolveStats();
-        Assert.assertEquals("r6c1=7", String.valueOf(solver.nextMove(stats)) );
+        Assert.assertEquals("r2c1=2", String.valueOf(solver.nextMove(stats)) );
 
         // But only requires one iteration
         Assert.assertEquals("Rounds: 1", String.valueOf(stats));
@@ -256,10 +272,10 @@ public class EliminatorTest {
     public void testForcingChains() {
         ISudoku p = PuzzleDB.getPuzzleByName("Forcing chains example");
 
-        // Cannot be solved w/o forcing chains
+        // Cannot be solved w/o forcing chains (or finned fish)
 
         SudokuSolver sv = new SudokuSolver(p);
-        sv.setEliminateNakedPairs().setEliminateIntersectionRadiation().setEliminateXWings();
+        sv.setEliminateNakedPairs().setEliminateIntersectionRadiation();
         Map.Entry<Coord, String> move = sv.nextMove(new SolveStats());
 
         assertNull(move);
@@ -274,6 +290,180 @@ public class EliminatorTest {
 //        assertEquals("r2c1=1", String.valueOf(move));
     }
 
+    @Test
+    public void testFinnedFish() {
+        ISudoku p = PuzzleDB.getPuzzleByName("Forcing chains example");
+        SudokuSolver sv = new SudokuSolver(p);
+        sv.setEliminateNakedPairs().setEliminateIntersectionRadiation().setEliminateXWings();
+
+        Map.Entry<Coord, String> move = sv.nextMove(new SolveStats());
+        assertEquals("r7c5=1", String.valueOf(move));
+
+        // Fin r9c4 is in the same box as r7c5
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r7c5"))).contains(
+                "Removed 2 from Column 5 because it has to be in the intersections of " +
+                        "[Column 2, Column 5, Column 8] X [Row 1, Row 6, Row 9] (Finned Swordfish) or in fins [r9c4]"));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r5c4"))).contains("(Sashimi Swordfish)"));
+    }
+
+    @Test
+    public void testWings() {
+        ISudoku p = PuzzleDB.getPuzzleByName("Forcing chains example");
+        SudokuSolver sv = new SudokuSolver(p);
+        sv.setEliminateWings();
+        sv.setEarlyStop(false);
+
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r1c2"))).contains(
+                "Removed 2 because it has to be in r1c8 or r6c2, whatever goes in r6c8 (XY-Wing)"));
+        assertEquals("[7]", String.valueOf(sv.getCandidatesAtCell(new Coord("r1c2"))));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r3c3"))).contains(
+                "Removed 2 because it has to be in r3c5, r3c4 or r3c6 (XYZ-Wing)"));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r9c2"))).contains(
+                "Removed 7 because it has to be in r1c2 or r9c4, as 2 in Column 2 has to be in r6c2 or r9c2 (W-Wing)"));
+
+        // Without the fish this needed forcing chains before
+        sv = new SudokuSolver(p.clone()).setSmartest().setEliminateXWings(false).setEliminateForcingChains(false);
+        assertEquals("r1c2=7", String.valueOf(sv.nextMove(new SolveStats())));
+    }
+
+    @Test
+    public void testUniqueRectangles() {
+        SudokuSolver sv = new SudokuSolver(PuzzleDB.Trouw_535);
+        sv.setEliminateUniqueRectangles();
+        sv.setEarlyStop(false);
+
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r7c5"))).contains(
+                "Removed 4 because otherwise [2, 9] could be swapped in [r7c6, r7c7, r8c6, r8c7] (Unique Rectangle Type 2)"));
+        assertEquals("[7, 9]", String.valueOf(sv.getCandidatesAtCell(new Coord("r7c5"))));
+
+        sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Magic tour 57"));
+        sv.setEliminateUniqueRectangles();
+        sv.setEarlyStop(false);
+
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r1c4"))).contains(
+                "Removed 3 because otherwise [3, 5] could be swapped in [r1c4, r1c9, r2c4, r2c9] (Unique Rectangle Type 4)"));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r3c6"))).contains(
+                "naked with [r1c5, r2c5, r3c5] (Unique Rectangle Type 3)"));
+
+        // Switched off again the candidates are back
+        sv.setEliminateUniqueRectangles(false);
+        assertTrue(sv.getCandidatesAtCell(new Coord("r1c4")).contains(3));
+    }
+
+    @Test
+    public void testUniqueRectanglesNeedUniqueSolution() {
+        // Has more than one solution, a unique rectangle once led to a move after which it had none
+        ISudoku p = new StandardSudoku("Multiple solutions",
+                "417.6..2.632.5....9....4...8.5....6.7.1.86..234.9.2.582..64...1..3.91....6..75..3".replace('.', ' '));
+        assertEquals(2, SudokuSolver.countSolutions(p, 2));
+
+        SudokuSolver sv = new SudokuSolver(p);
+        sv.setSmartest().setEliminateForcingChains(false);
+        SolveStats stats = new SolveStats();
+        Map.Entry<Coord, String> move;
+        while ((move = sv.nextMove(stats)) != null) {
+            assertFalse(String.valueOf(sv.getEliminationReasons(move.getKey())).contains("Unique Rectangle"));
+            p.doMove(move.getKey(), move.getValue());
+            assertEquals(move + " leaves no solution", 1, SudokuSolver.countSolutions(p, 1));
+        }
+    }
+
+    @Test
+    public void testAlmostLockedSets() {
+        SudokuSolver sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov"));
+        sv.setEliminateAlmostLockedSets();
+        sv.setEarlyStop(false);
+
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r9c4"))).contains(
+                "Removed 7 because it has to be in [r8c5] or in [r7c6, r9c5], which cannot both have 1 (ALS-XZ)"));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r9c4"))).contains(
+                "Removed 5 because it has to be in [r7c6, r8c5, r8c6, r9c5] or in [r8c8, r8c9, r9c7, r9c9], " +
+                        "as [r7c1, r7c2, r7c3, r8c3] has one of [6, 8] (ALS-XY-Wing)"));
+        assertEquals("[2, 3]", String.valueOf(sv.getCandidatesAtCell(new Coord("r9c4"))));
+    }
+
+    @Test
+    public void testXChains() {
+        SudokuSolver sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov"));
+        sv.setEliminateXChains();
+        sv.setEarlyStop(false);
+
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r2c9"))).contains(
+                "Removed 6 because it has to be in r1c7 or r5c9, the ends of [r1c7, r2c7, r2c9, r5c9] (Skyscraper)"));
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r1c7"))).contains(
+                "Removed 9 because it has to be in either [r1c5] or [r1c6, r5c5] (Simple Coloring)"));
+        assertEquals("[1, 4, 5, 6]", String.valueOf(sv.getCandidatesAtCell(new Coord("r1c7"))));
+
+        sv = new SudokuSolver(PuzzleDB.getPuzzleByName("www.extremesudoku.info 27/11/13"));
+        sv.setEliminateXChains();
+        sv.setEarlyStop(false);
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r6c4"))).contains(
+                "Removed 3 because it has to be in r6c3 or r9c4, the ends of [r6c3, r3c3, r1c2, r1c9, r9c9, r9c4] (X-Chain)"));
+    }
+
+    @Test
+    public void testTemplates() {
+        SudokuSolver sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov"));
+        sv.setEliminateTemplates();
+        sv.setEarlyStop(false);
+
+        // Same as the coloring finds
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r1c7"))).contains(
+                "Removed 9 because none of the 11 ways it still fits in all groups uses this cell, " +
+                        "it has to be in [r7c9] (Templates)"));
+        assertEquals("[1, 4, 5, 6]", String.valueOf(sv.getCandidatesAtCell(new Coord("r1c7"))));
+
+        sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Trouw_535"));
+        sv.setEliminateTemplates();
+        sv.setEarlyStop(false);
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r2c6"))).contains(
+                "Removed 1 because the only way it still fits in all groups does not use this cell, " +
+                        "it has to be in [r2c5, r4c6, r8c8] (Templates)"));
+    }
+
+    @Test
+    public void testAlternatingChains() {
+        SudokuSolver sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Trouw_535"));
+        sv.setEliminateAlternatingChains();
+        sv.setEarlyStop(false);
+
+        // With group nodes
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r2c9"))).contains(
+                "Removed 2 because one end of (2)r2c3 = (2)[r3c1, r3c3] - (2)r3c4 = (2)[r2c4, r2c6] is true (AIC)"));
+        assertEquals("[9]", String.valueOf(sv.getCandidatesAtCell(new Coord("r2c9"))));
+
+        // Both ends in the same cell
+        sv = new SudokuSolver(PuzzleDB.getPuzzleByName("Magic tour 64"));
+        sv.setEliminateAlternatingChains();
+        sv.setEarlyStop(false);
+        assertTrue(String.valueOf(sv.getEliminationReasons(new Coord("r8c1"))).contains(
+                "Removed 9 because one end of (1)r8c1 = (1)r8c4 - (5)r8c4 = (5)r8c1 is true (AIC)"));
+    }
+
+    @Test
+    public void testForcingChainsBudget() {
+        ISudoku p = PuzzleDB.getPuzzleByName("Forcing chains example");
+        SudokuSolver sv = new SudokuSolver(p).setEliminateIntersectionRadiation().setEliminateNakedPairs().setEliminateForcingChains();
+
+        // Runs out of budget before anything is found
+        sv.getForcingChainsBudget().setMaxNodes(1);
+        assertNull(sv.nextMove(new SolveStats()));
+        assertFalse(sv.getForcingChainsBudget().isExhaustive());
+        assertEquals(1, sv.getForcingChainsBudget().getDepth());
+
+        sv.getForcingChainsBudget().setMaxNodes(Long.MAX_VALUE).setMaxDepth(1);
+        assertNull(sv.nextMove(new SolveStats()));
+        assertFalse(sv.getForcingChainsBudget().isExhaustive());
+
+        // Same move as without any limits
+        sv.getForcingChainsBudget().setUnlimited().setMaxMillis(60_000);
+        Map.Entry<Coord, String> move = sv.nextMove(new SolveStats());
+        assertEquals("r1c2=7", String.valueOf(move));
+        assertTrue(sv.getForcingChainsBudget().isExhaustive());
+        assertTrue(sv.getForcingChainsBudget().getDepth() > 1);
+        assertTrue(sv.getForcingChainsBudget().getNodeCount() > 1);
+    }
+
     @Test
     public void testForcingChainsNotAllConclusionsAreEliminations()
     {
@@ -288,8 +478,10 @@ public class EliminatorTest {
                 ".47985.3." +
                 "5..2147..");
 
+        // The newer techniques find another move before the chains get to this one
         SudokuSolver sv = new SudokuSolver(p);
-        sv.setSmartest().setEarlyStop(false);
+        sv.setEliminateIntersectionRadiation().setEliminateNakedPairs().setEliminateXWings().setEliminateForcingChains();
+        sv.setEarlyStop(false);
         sv.setVerbose(false);
 
         Map.Entry<Coord, String> mv = sv.nextMove(new SolveStats());
@@ -328,24 +520,25 @@ public class EliminatorTest {
     // here we assert this happens.
     public void testForcingChainsWithUniqueValueMoves()
     {
-        ISudoku p = PuzzleDB.getPuzzleByName("Magic tour 10");
+        ISudoku p = PuzzleDB.getPuzzleByName("Magic tour 40");
         SudokuSolver sv = new SudokuSolver(p);
-        sv.setVerbose(false).setSmartest();
+        sv.setEliminateIntersectionRadiation().setEliminateNakedPairs().setEliminateXWings().setEliminateForcingChains();
+        sv.setVerbose(false);
         SolveStats stats = new SolveStats();
 
-        // Easy moves
-        for (int i=0; i<8; i++) {
+        // Easy moves, and a few with small forcing chains
+        for (int i=0; i<12; i++) {
             Map.Entry<Coord, String> x = sv.nextMove(stats);
             p.doMove(x.getKey(), x.getValue());
         }
 
-        // This is the hard one that requires a pretty advanced forcing chain
+        // This one needs a forcing chain with a unique value in it
         Map.Entry<Coord, String> hardMove = sv.nextMove(stats);
-        assertEquals("r4c4=6", String.valueOf(hardMove));
-        List<Explanation> r = sv.getEliminationReasons(new Coord("r4c6")); // NB is not where the move is done
+        assertEquals("r4c1=1", String.valueOf(hardMove));
+        List<Explanation> r = sv.getEliminationReasons(new Coord("r2c7")); // NB is not where the move is done
 
         // It's a subtle test but this means there is a "unique value" part of the forced chains
-        assertTrue(r.toString().contains("U:"));
+        assertTrue(r.toString().contains("U(Row 4):2@r4c9"));
 
         assertTrue(sv.solve());
     }
@@ -7,6 +7,8 @@ import ottop.sudoku.puzzle.ISudoku;
 import ottop.sudoku.puzzle.NRCSudoku;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class NRCSudokuTest {
 
@@ -28,5 +30,11 @@ public class NRCSudokuTest {
         assertEquals(20, emptyPuzzle.getBuddies(new Coord("r1c1")).size());
         assertEquals(4, emptyPuzzle.getBuddyGroups(new Coord("r2c2")).length);
         assertEquals(23, emptyPuzzle.getBuddies(new Coord("r2c2")).size());
+
+        int r2c2 = emptyPuzzle.getCellIndex(new Coord("r2c2"));
+        assertEquals(23, emptyPuzzle.getPeers(r2c2).length);
+        assertTrue(emptyPuzzle.getPeerTable().isPeer(r2c2, emptyPuzzle.getCellIndex(new Coord("r4c4"))));
+        assertFalse(emptyPuzzle.getPeerTable().isPeer(r2c2, emptyPuzzle.getCellIndex(new Coord("r5c5"))));
+        assertFalse(emptyPuzzle.getPeerTable().isPeer(r2c2, r2c2));
     }
 }
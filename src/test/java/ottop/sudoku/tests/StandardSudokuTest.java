@@ -99,6 +99,23 @@ public class StandardSudokuTest {
         assertEquals(27, p.getGroups().length);
     }
 
+    @Test
+    public void checkSharedTopology() {
+        ISudoku p = new StandardSudoku("Empty");
+        ISudoku q = p.clone();
+        assertSame(p.getTopology(), q.getTopology());
+        assertSame(p.getTopology(), PuzzleDB.Trouw_535.getTopology());
+
+        // but not the state
+        Coord c = p.getAllCells()[0];
+        assertFalse(p.isOccupied(c));
+        new SudokuSolver(q);
+        q.doMove(c, "1");
+        assertTrue(q.isOccupied(c));
+        assertFalse(p.isOccupied(c));
+        assertFalse(p.canUndo());
+    }
+
     @Test
     public void checkDoMove() {
         ISudoku p = PuzzleDB.Trouw_535;
@@ -4,14 +4,25 @@ import org.junit.Before;
 import org.junit.Test;
 import ottop.sudoku.board.AbstractGroup;
 import ottop.sudoku.board.Coord;
+import ottop.sudoku.board.RowGroup;
 import ottop.sudoku.PuzzleDB;
 import ottop.sudoku.explain.Explanation;
+import ottop.sudoku.explain.SimpleEliminationReason;
 import ottop.sudoku.puzzle.ISudoku;
 import ottop.sudoku.puzzle.NRCSudoku;
 import ottop.sudoku.puzzle.StandardSudoku;
+import ottop.sudoku.reader.MagicTourReader;
+import ottop.sudoku.reader.SudokuReader;
+import ottop.sudoku.solver.BacktrackingSolver;
+import ottop.sudoku.solver.CandidateGrid;
+import ottop.sudoku.solver.DancingLinksSolver;
+import ottop.sudoku.solver.EliminationLog;
+import ottop.sudoku.solver.Eliminator;
+import ottop.sudoku.solver.EliminatorPipeline;
 import ottop.sudoku.solver.SolveStats;
 import ottop.sudoku.solver.SudokuSolver;
 
+import java.io.IOException;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -129,6 +140,213 @@ public class SudokuSolverTest {
         assertTrue(p.isSolved());
     }
 
+    @Test
+    public void testBruteForceFallback() throws IOException {
+        solver = (new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov").clone())).setSimplest();
+        assertTrue(solver.setBruteForceFallback().solve());
+
+        for (ISudoku p : new ISudoku[]{PuzzleDB.puzzelbrein12_2020, PuzzleDB.EOC_dec14, PuzzleDB.NRC_5dec14,
+                PuzzleDB.getPuzzleByName("Fresh Brainhouse")}) {
+            ISudoku shadowPuzzle = p.clone();
+            assertTrue(p.getName(), new SudokuSolver(shadowPuzzle).setBruteForceFallback().solve());
+        }
+
+        assertFalse(new BacktrackingSolver(PuzzleDB.unsolvable).solve());
+
+        SudokuReader sr = new MagicTourReader();
+        int nSolved = 0;
+        while (sr.hasNext()) {
+            ISudoku p = sr.next();
+            BacktrackingSolver bruteForce = new BacktrackingSolver(p);
+            assertTrue(p.getName(), bruteForce.solve());
+            if (new SudokuSolver(p).setBruteForceFallback().solve()) nSolved++;
+        }
+        assertEquals(95, nSolved);
+    }
+
+    @Test
+    public void testDancingLinks() throws IOException {
+        for (ISudoku p : new ISudoku[]{PuzzleDB.puzzelbrein12_2020, PuzzleDB.EOC_dec14, PuzzleDB.NRC_5dec14,
+                PuzzleDB.getPuzzleByName("Fresh Brainhouse"), PuzzleDB.extremesudoku_info_excessive_4jan2021}) {
+            DancingLinksSolver dlx = new DancingLinksSolver(p);
+            assertTrue(p.getName(), dlx.solve(p));
+
+            ISudoku shadowPuzzle = p.clone();
+            new SudokuSolver(shadowPuzzle);
+            for (Map.Entry<Coord, String> move : dlx.getSolution(p).entrySet()) {
+                shadowPuzzle.doMove(move.getKey(), move.getValue());
+            }
+            assertTrue(p.getName(), shadowPuzzle.isSolved());
+        }
+
+        // Nothing on the board: many solutions
+        ISudoku empty = new StandardSudoku("Empty");
+        assertEquals(5, new DancingLinksSolver(empty).countSolutions(empty, 5));
+        assertEquals(0, new DancingLinksSolver(PuzzleDB.unsolvable).countSolutions(PuzzleDB.unsolvable, 2));
+
+        // Same solver for all puzzles of the same topology
+        SudokuReader sr = new MagicTourReader();
+        DancingLinksSolver dlx = null;
+        while (sr.hasNext()) {
+            ISudoku p = sr.next();
+            if (dlx == null) dlx = new DancingLinksSolver(p);
+            assertEquals(p.getName(), 1, dlx.countSolutions(p, 2));
+        }
+    }
+
+    @Test
+    public void testCountSolutions() throws IOException {
+        assertEquals(1, SudokuSolver.countSolutions(PuzzleDB.Trouw_535, 2));
+        assertTrue(SudokuSolver.hasUniqueSolution(PuzzleDB.NRC_5dec14));
+        assertEquals(new DancingLinksSolver(PuzzleDB.puzzelbrein12_2020).countSolutions(PuzzleDB.puzzelbrein12_2020, 5),
+                SudokuSolver.countSolutions(PuzzleDB.puzzelbrein12_2020, 5));
+        assertEquals(0, SudokuSolver.countSolutions(PuzzleDB.unsolvable, 2));
+        assertEquals(10, SudokuSolver.countSolutions(PuzzleDB.getPuzzleByName("Fresh Brainhouse"), 10));
+        assertEquals(10, SudokuSolver.countSolutions(new StandardSudoku("Empty"), 10));
+
+        Map<String, Integer> counts = SudokuSolver.countSolutions(new MagicTourReader(), 2);
+        assertEquals(95, counts.size());
+        assertTrue(counts.values().stream().allMatch(n -> n == 1));
+    }
+
+    @Test
+    public void testEliminatorPipeline() {
+        // A technique from outside the solver package
+        int[] nCalls = {0};
+        solver = (new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov").clone())).setSimplest();
+        solver.addEliminator("Nothing", (p, candidates, reasons) -> new Eliminator(p, candidates, reasons) {
+            public boolean eliminate() {
+                nCalls[0]++;
+                return false;
+            }
+        });
+        assertFalse(solver.solve());
+        EliminatorPipeline.Stage stage = solver.getEliminatorPipeline().getStage("Nothing");
+        assertTrue(nCalls[0] > 0);
+        assertEquals(nCalls[0], stage.getCalls());
+        assertEquals(0, stage.getHits());
+        assertFalse(solver.getEliminatorPipeline().isEnabled(SudokuSolver.FORCING_CHAINS));
+
+        // Registration order is the default, same result as before
+        List<EliminatorPipeline.Stage> stages = new SudokuSolver(PuzzleDB.Trouw_535.clone()).getEliminatorPipeline().getStages();
+        assertEquals(SudokuSolver.INTERSECTION_RADIATION, stages.get(0).getName());
+        assertEquals(SudokuSolver.FORCING_CHAINS, stages.get(stages.size() - 1).getName());
+
+        solver = (new SudokuSolver(PuzzleDB.extremesudoku_info_excessive_4jan2021.clone())).setSmartest();
+        assertTrue(solver.setAdaptiveOrdering(true).solve());
+        long nHits = 0;
+        for (EliminatorPipeline.Stage s : solver.getEliminatorPipeline().getStages()) {
+            assertTrue(s.getHits() <= s.getCalls());
+            nHits += s.getHits();
+        }
+        assertTrue(nHits > 0);
+    }
+
+    @Test
+    public void testWithoutExplanations() {
+        for (ISudoku p : new ISudoku[]{PuzzleDB.extremesudoku_info_excessive_4jan2021, PuzzleDB.NRC_5dec14,
+                PuzzleDB.getPuzzleByName("Parool_18nov")}) {
+            ISudoku explained = p.clone();
+            ISudoku fast = p.clone();
+            SudokuSolver explainingSolver = new SudokuSolver(explained).setSmartest();
+            SudokuSolver fastSolver = new SudokuSolver(fast, false).setSmartest();
+            assertTrue(explainingSolver.isExplaining());
+            assertFalse(fastSolver.isExplaining());
+
+            // Same moves, just no reasons other than the move itself
+            SolveStats stats = new SolveStats();
+            while (!explained.isComplete()) {
+                Map.Entry<Coord, String> move = explainingSolver.nextMove(stats);
+                assertNotNull(p.getName(), move);
+                assertEquals(p.getName(), move, fastSolver.nextMove(stats));
+                assertEquals(1, fastSolver.getEliminationReasons(move.getKey()).size());
+                explained.doMove(move.getKey(), move.getValue());
+                fast.doMove(move.getKey(), move.getValue());
+            }
+            assertTrue(fast.isSolved());
+        }
+    }
+
+    @Test
+    public void testEliminationLog() {
+        ISudoku p = new StandardSudoku("Empty");
+        EliminationLog log = new EliminationLog(p);
+        AbstractGroup g = p.getGroups()[0];
+        int[] nExplained = {0};
+        EliminationLog.Reason reason = (c, symbolCodes) -> {
+            nExplained[0]++;
+            return new SimpleEliminationReason(CandidateGrid.toSymbols(p, symbolCodes, new TreeSet<>()), c, g);
+        };
+
+        // Lots of removals, explanations are only made when asked for
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 81; i++) {
+                log.add(i, CandidateGrid.bit(1 + round % 9), reason);
+            }
+            if (round < 99) {
+                for (int i = 1; i < 81; i++) log.clear(i);
+            }
+        }
+        assertEquals(0, nExplained[0]);
+        assertEquals(100 + 80, log.size());
+
+        // Same group, so combined into one
+        List<Explanation> reasons = log.getExplanations(p.getCellIndex(new Coord("r5c5")));
+        assertEquals(1, nExplained[0]);
+        assertEquals(1, reasons.size());
+        assertEquals("Removed 1 because of " + g + " (Simple Elimination)", reasons.get(0).toString());
+
+        // All 100 removals at the first cell, again combined into one
+        List<Explanation> reasonsAtFirstCell = log.getExplanations(0);
+        assertEquals(1 + 100, nExplained[0]);
+        assertEquals("[Removed [1, 2, 3, 4, 5, 6, 7, 8, 9] because of " + g + " (Simple Elimination)]",
+                String.valueOf(reasonsAtFirstCell));
+
+        log.clear(0);
+        assertFalse(log.hasReasons(0));
+        assertNull(log.getExplanations(0));
+    }
+
+    @Test
+    public void testGroupPositions() {
+        ISudoku p = new StandardSudoku("Empty");
+        CandidateGrid grid = new CandidateGrid(p);
+        grid.fill(CandidateGrid.allSymbols(p.getSymbolCodeRange()));
+        int row1 = -1;
+        AbstractGroup[] groups = p.getGroups();
+        for (int g = 0; g < groups.length; g++) {
+            if (groups[g].isInGroup(p.getCellIndex(new Coord("r1c1"))) && groups[g] instanceof RowGroup) row1 = g;
+        }
+        assertEquals(0x1FF, grid.getPositions(row1, 5));
+
+        // Remove 5 from all but one cell of the row, which leaves a hidden single
+        int[] rowCells = groups[row1].getCellIndexes();
+        for (int i = 1; i < rowCells.length; i++) {
+            grid.remove(rowCells[i], 5);
+        }
+        assertEquals(1, grid.getPositionCount(row1, 5));
+        assertEquals(1 << groups[row1].getPosition(rowCells[0]), grid.getPositions(row1, 5));
+
+        grid.set(rowCells[0], 0);
+        assertEquals(0, grid.getPositions(row1, 5));
+        grid.set(rowCells[3], CandidateGrid.bit(5));
+        assertEquals(1 << 3, grid.getPositions(row1, 5));
+        assertEquals(7, grid.getPositionCount(row1, 4)); // gone at positions 0 and 3
+    }
+
+    @Test
+    public void testOnlyChangedGroupsRevisited() {
+        solver = (new SudokuSolver(PuzzleDB.extremesudoku_info_excessive_4jan2021.clone())).setSimplest();
+        solver.setEliminateIntersectionRadiation().setEliminateNakedPairs().setEliminateXWings();
+        assertTrue(solver.solve());
+
+        EliminatorPipeline pipeline = solver.getEliminatorPipeline();
+        EliminatorPipeline.Stage stage = pipeline.getStage(SudokuSolver.INTERSECTION_RADIATION);
+        assertTrue(stage.getCalls() > 1);
+        assertTrue(stage.getSkippedCount() > 0);
+        assertTrue(pipeline.getSkippedFraction() > 0.0);
+    }
+
     @Test
     public void testPuzzleNeedsIntersectionRadiation() {
         solver = (new SudokuSolver(PuzzleDB.getPuzzleByName("Parool_18nov"))).setSimplest();
@@ -175,8 +393,9 @@ public class SudokuSolverTest {
         solver = (new SudokuSolver(p)).setEliminateIntersectionRadiation().setEliminateNakedPairs();
         assertEquals(0, getPossibleMoves().size());
 
+        // 3 moves with just the X-Wings, the finned fish give more
         solver.setEliminateXWings();
-        assertEquals(3, getPossibleMoves().size());
+        assertEquals(12, getPossibleMoves().size());
     }
 
     @Test
@@ -318,9 +537,9 @@ public class SudokuSolverTest {
         // Requires naked trio and also a 2nd round
         assertEquals(6, SudokuSolver.assessDifficulty(PuzzleDB.extremesudoku_28_nov_2013));
 
-        // Requires a swordfish and multiple rounds
-        // AARGH sometimes 9 sometimes 10
-        assertTrue(SudokuSolver.assessDifficulty(PuzzleDB.extremesudoku_info_excessive_4jan2021) >= 9);
+        // Requires a swordfish and multiple rounds. Fewer rounds than it used to as
+        // eliminations are no longer recalculated after every move.
+        assertTrue(SudokuSolver.assessDifficulty(PuzzleDB.extremesudoku_info_excessive_4jan2021) >= 8);
 
         // empty or invalid puzzles
         assertEquals(-1, SudokuSolver.assessDifficulty(PuzzleDB.getPuzzleByName("Empty NRC Sudoku")));